@@ -2,14 +2,21 @@ package org.unicode.cldr.surveydriver;
 
 import static org.junit.Assert.assertTrue;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.file.Paths;
 import java.time.Duration;
 import java.util.List;
 import java.util.Objects;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import org.openqa.selenium.By;
+import org.openqa.selenium.Cookie;
+import org.openqa.selenium.JavascriptExecutor;
 import org.openqa.selenium.Keys;
 import org.openqa.selenium.NoSuchElementException;
 import org.openqa.selenium.StaleElementReferenceException;
@@ -18,10 +25,11 @@ import org.openqa.selenium.WebDriverException;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.chrome.ChromeDriver;
 import org.openqa.selenium.chrome.ChromeOptions;
-import org.openqa.selenium.logging.LogEntry;
+import org.openqa.selenium.devtools.DevTools;
+import org.openqa.selenium.devtools.HasDevTools;
 import org.openqa.selenium.logging.LogType;
 import org.openqa.selenium.logging.LoggingPreferences;
-import org.openqa.selenium.logging.Logs;
+import org.openqa.selenium.remote.Augmenter;
 import org.openqa.selenium.remote.RemoteWebDriver;
 import org.openqa.selenium.remote.SessionId;
 import org.openqa.selenium.support.ui.ExpectedCondition;
@@ -51,8 +59,9 @@ import org.openqa.selenium.support.ui.WebDriverWait;
  * <p>cd cldr-apps-webdriver/scripts; sh selenium-grid-start.sh
  *
  * <p>Open this file (SurveyDriver.java) in IntelliJ, right-click cldr-apps-webdriver in the Project
- * panel, and choose "Debug All Tests". You can do this repeatedly to start multiple browsers with
- * simulated vetters vetting at the same time.
+ * panel, and choose "Debug All Tests". To start multiple browsers with simulated vetters vetting at
+ * the same time, set SESSION_COUNT to the number of vetters; see SurveyDriverLoadEngine.
+ * (Alternatively, you can still "Debug All Tests" repeatedly with SESSION_COUNT = 1.)
  */
 public class SurveyDriver {
 
@@ -66,16 +75,117 @@ public class SurveyDriver {
     static final boolean TEST_XML_UPLOADER = false;
     static final boolean TEST_DASHBOARD = true;
 
+    /*
+     * If TEST_API_VOTING is true, simulate API_VETTER_COUNT vetters voting through the Survey Tool API,
+     * without browsers; see SurveyDriverApiVoting. Each vetter has its own virtual thread on Java 21+;
+     * on older versions they share API_PLATFORM_THREAD_COUNT threads.
+     */
+    static final boolean TEST_API_VOTING = false;
+    static final int API_VETTER_COUNT = 5000;
+    static final int API_PLATFORM_THREAD_COUNT = 200;
+
+    /*
+     * The number of browser sessions sharing the work if TEST_LOCALES_AND_PAGES is true; see
+     * SurveyDriverCrawl
+     */
+    static final int CRAWL_SESSION_COUNT = 8;
+
+    /*
+     * If TEST_OPEN_LOOP is true, issue API-level votes and dashboard requests at a target rate,
+     * measuring latency from the intended start times; see SurveyDriverOpenLoop
+     */
+    static final boolean TEST_OPEN_LOOP = false;
+
+    /*
+     * If USE_MOCK_SERVER is true (-Dsurveydriver.mock=true), runTests starts SurveyDriverMockServer,
+     * a stand-in for Survey Tool, with API latency MOCK_LATENCY_MILLISECONDS plus random jitter up to
+     * MOCK_JITTER_MILLISECONDS, and BASE_URL refers to it.
+     */
+    static final boolean USE_MOCK_SERVER = Boolean.getBoolean("surveydriver.mock");
+    static final long MOCK_LATENCY_MILLISECONDS = Long.getLong("surveydriver.mockLatency", 20);
+    static final long MOCK_JITTER_MILLISECONDS = Long.getLong("surveydriver.mockJitter", 20);
+
     /*
      * Configure for Survey Tool server, which can be localhost, cldr-smoke, cldr-staging, ...
+     * The system property surveydriver.baseUrl overrides the default.
      */
-    static final String BASE_URL = "http://localhost:9080/cldr-apps/";
+    static final String BASE_URL =
+            USE_MOCK_SERVER
+                    ? SurveyDriverMockServer.DEFAULT_BASE_URL
+                    : System.getProperty(
+                            "surveydriver.baseUrl", "http://localhost:9080/cldr-apps/");
     // static final String BASE_URL = "https://cldr-smoke.unicode.org/cldr-apps/";
     // static final String BASE_URL = "https://cldr-staging.unicode.org/cldr-apps/";
 
     static final long TIME_OUT_SECONDS = 30;
     static final long SLEEP_MILLISECONDS = 100;
 
+    /*
+     * If USE_DOM_WAITS is true, then most waits are done by a MutationObserver in the page (see
+     * SurveyDriverDomWait), rather than by polling every SLEEP_MILLISECONDS; polling is still used
+     * if the page doesn't allow the script to run, such as during navigation.
+     */
+    static final boolean USE_DOM_WAITS = true;
+
+    /*
+     * If USE_CONSOLE_EVENTS is true, then browser console messages and exceptions are received as they
+     * happen through DevTools (see SurveyDriverConsole), rather than by polling the browser log, which
+     * is then only enabled if DevTools is unavailable. The most recent CONSOLE_BUFFER_CAPACITY entries
+     * are kept, and the last CONSOLE_FAILURE_ENTRY_COUNT of them are logged when a page fails.
+     */
+    static final boolean USE_CONSOLE_EVENTS = true;
+    static final int CONSOLE_BUFFER_CAPACITY = 1000;
+    static final int CONSOLE_FAILURE_ENTRY_COUNT = 20;
+
+    /*
+     * If RECORD_HAR_FILES is true, then each session writes its network requests to a HAR file in
+     * target/har; if RECORD_HAR_AGGREGATE is true, then the requests of all sessions are summarized
+     * at the end of the run. See SurveyDriverHarRecorder.
+     */
+    static final boolean RECORD_HAR_FILES = false;
+    static final boolean RECORD_HAR_AGGREGATE = false;
+
+    /*
+     * The number of simulated vetters (browser sessions) to run from this JVM, and the maximum number
+     * of them to run at the same time, which should not exceed the number of slots in the selenium grid
+     */
+    static final int SESSION_COUNT = 1;
+    static final int MAX_PARALLEL_SESSIONS = 50;
+
+    /*
+     * If USE_SESSION_POOL is true, then browser sessions are kept when their scenarios finish, still
+     * logged in, and reused by later scenarios and crawl sessions; see SurveyDriverSessionPool. At most
+     * SESSION_POOL_MAX_IDLE sessions are kept, each for at most SESSION_POOL_MAX_IDLE_SECONDS, and with
+     * the remote grid, only while it has a free slot left for new sessions.
+     */
+    static final boolean USE_SESSION_POOL = true;
+    static final int SESSION_POOL_MAX_IDLE = 50;
+    static final long SESSION_POOL_MAX_IDLE_SECONDS = 300;
+
+    /*
+     * If USE_LOGIN_CACHE is true, then each simulated user logs in through the user interface only
+     * once; later sessions for the same user reuse the cookies of that login, for at most
+     * LOGIN_CACHE_MAX_AGE_SECONDS, logging in again if they no longer work; see SurveyDriverLoginCache.
+     * LOGIN_VERIFY_MILLISECONDS is how long to wait for the cookies to show that we're logged in.
+     */
+    static final boolean USE_LOGIN_CACHE = true;
+    static final long LOGIN_CACHE_MAX_AGE_SECONDS = 3600;
+    static final long LOGIN_VERIFY_MILLISECONDS = 5000;
+
+    /*
+     * If USE_TABLE_ROW_HASHES is true, then vetting-table snapshots are hashed row by row in the page,
+     * and only the html of rows that differ from the expected table is transferred; see
+     * SurveyDriverTableSnapshot. Otherwise the whole outerHTML of the table is transferred.
+     */
+    static final boolean USE_TABLE_ROW_HASHES = true;
+
+    /*
+     * If USE_CRAWL_JOURNAL is true, then TEST_LOCALES_AND_PAGES records the units that passed in
+     * SurveyDriverCrawl.JOURNAL_PATH, so that an interrupted crawl resumes where it left off; see
+     * SurveyDriverCrawlJournal. Otherwise every crawl starts from the beginning.
+     */
+    static final boolean USE_CRAWL_JOURNAL = true;
+
     /*
      * If USE_REMOTE_WEBDRIVER is true, then the driver will be a RemoteWebDriver (a class that implements
      * the WebDriver interface). Otherwise, the driver could be a ChromeDriver, or FirefoxDriver, EdgeDriver,
@@ -88,6 +198,7 @@ public class SurveyDriver {
 
     public WebDriver driver;
     public WebDriverWait wait;
+    private SurveyDriverDomWait domWait;
     private SessionId sessionId = null;
 
     /**
@@ -97,39 +208,144 @@ public class SurveyDriver {
      */
     private int userIndex = 0; // possibly changed below, see getUserIndexFromGrid
 
+    /** True if userIndex was assigned by the caller, rather than determined from the grid */
+    private final boolean userIndexAssigned;
+
+    /** True if this session holds userIndex in SurveyDriverGrid, to be released in tearDown */
+    private boolean userIndexHeld = false;
+
     private boolean gotComprehensiveCoverage = false;
 
+    /** True if login has succeeded in this session, so that it needn't be repeated */
+    private boolean loggedIn = false;
+
+    /** Latency histograms for this session, merged into the global ones in tearDown */
+    final SurveyDriverLatency latency = new SurveyDriverLatency();
+
+    private SurveyDriverVoteTimer voteTimer = null;
+
+    /** Scans the browser logs for known error signatures; see SurveyDriverLogScanner */
+    private SurveyDriverLogScanner logScanner = null;
+
+    /** Captures the browser console as it happens, if USE_CONSOLE_EVENTS */
+    private SurveyDriverConsole console = null;
+
+    /** Records network requests, if RECORD_HAR_FILES or RECORD_HAR_AGGREGATE */
+    private SurveyDriverHarRecorder harRecorder = null;
+
+    /** The DevTools connection shared by console and harRecorder, or null */
+    private DevTools devTools = null;
+
+    /** Collects Navigation Timing and Resource Timing after each page load */
+    private SurveyDriverPageTiming pageTiming = null;
+
+    /** Elements of the vetting table on the current page; see findRowCellTagElement */
+    SurveyDriverRowCache rowCache = null;
+
+    /** Logged by Survey Tool when the vetting table is rebuilt, so cached elements are stale */
+    private static final String RECREATE_TABLE_SIGNATURE =
+            "insertRows: recreating table from scratch";
+
+    public SurveyDriver() {
+        this.userIndexAssigned = false;
+    }
+
+    /**
+     * Construct a SurveyDriver for a particular simulated user
+     *
+     * @param userIndex the user index, overriding the one that would be determined from the grid
+     */
+    public SurveyDriver(int userIndex) {
+        this.userIndex = userIndex;
+        this.userIndexAssigned = true;
+    }
+
     public static void runTests() {
-        SurveyDriver s = new SurveyDriver();
-        s.setUp();
-        if (TEST_VETTING_TABLE) {
-            assertTrue(SurveyDriverVettingTable.testVettingTable(s));
+        SurveyDriverMockServer mockServer = null;
+        if (USE_MOCK_SERVER) {
+            try {
+                mockServer =
+                        new SurveyDriverMockServer(
+                                SurveyDriverMockServer.DEFAULT_PORT,
+                                MOCK_LATENCY_MILLISECONDS,
+                                MOCK_JITTER_MILLISECONDS,
+                                Paths.get("data"));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            mockServer.start();
         }
-        if (TEST_FAST_VOTING) {
-            assertTrue(s.testFastVoting());
+        try {
+            if (TEST_API_VOTING) {
+                assertTrue(SurveyDriverApiVoting.test(API_VETTER_COUNT, API_PLATFORM_THREAD_COUNT));
+            }
+            if (TEST_OPEN_LOOP) {
+                assertTrue(SurveyDriverOpenLoop.test());
+            }
+            if (TEST_LOCALES_AND_PAGES) {
+                assertTrue(SurveyDriverCrawl.testAllLocalesAndPages(CRAWL_SESSION_COUNT));
+            }
+            assertTrue(new SurveyDriverLoadEngine(SESSION_COUNT, MAX_PARALLEL_SESSIONS).run());
+        } finally {
+            SurveyDriverSessionPool.getGlobal().closeAll();
+            if (mockServer != null) {
+                mockServer.stop();
+            }
+        }
+    }
+
+    /**
+     * Set up this session, run all the enabled tests, and clean up.
+     *
+     * @return true if all enabled tests passed, else false
+     */
+    public boolean runScenarios() {
+        setUp();
+        try {
+            return runEnabledScenarios();
+        } finally {
+            tearDown();
+        }
+    }
+
+    /**
+     * Run all the enabled tests in this session, which must already be set up
+     *
+     * @return true if all enabled tests passed, else false
+     */
+    boolean runEnabledScenarios() {
+        if (TEST_VETTING_TABLE && !SurveyDriverVettingTable.testVettingTable(this)) {
+            return false;
         }
-        if (TEST_LOCALES_AND_PAGES) {
-            assertTrue(s.testAllLocalesAndPages());
+        if (TEST_FAST_VOTING && !testFastVoting()) {
+            return false;
         }
-        if (TEST_ANNOTATION_VOTING) {
-            assertTrue(s.testAnnotationVoting());
+        if (TEST_ANNOTATION_VOTING && !testAnnotationVoting()) {
+            return false;
         }
-        if (TEST_XML_UPLOADER) {
-            assertTrue(new SurveyDriverXMLUploader(s).testXMLUploader());
+        if (TEST_XML_UPLOADER && !new SurveyDriverXMLUploader(this).testXMLUploader()) {
+            return false;
         }
-        if (TEST_DASHBOARD) {
-            assertTrue(new SurveyDriverDashboard(s).test());
+        if (TEST_DASHBOARD && !new SurveyDriverDashboard(this).test()) {
+            return false;
         }
-        s.tearDown();
+        return true;
     }
 
-    /** Set up the driver and its "wait" object. */
-    private void setUp() {
-        LoggingPreferences logPrefs = new LoggingPreferences();
-        logPrefs.enable(LogType.BROWSER, Level.ALL);
-
+    /**
+     * Start the browser session, setting driver and sessionId
+     *
+     * @param pollLogs true to have the browser keep its log for SurveyDriverLogScanner.drain to
+     *     poll; otherwise the log isn't enabled, since the console is captured through DevTools and
+     *     nothing would empty the browser's buffer
+     */
+    private void startBrowser(boolean pollLogs) {
         ChromeOptions options = new ChromeOptions();
-        options.setCapability("goog:loggingPrefs", logPrefs);
+        if (pollLogs) {
+            LoggingPreferences logPrefs = new LoggingPreferences();
+            logPrefs.enable(LogType.BROWSER, Level.ALL);
+            options.setCapability("goog:loggingPrefs", logPrefs);
+        }
         // options.addArguments("start-maximized"); // this works, but inconvenient especially if
         // more than one
         // options.addArguments("auto-open-devtools-for-tabs"); // this works, but makes window too
@@ -144,36 +360,213 @@ public class SurveyDriver {
             SurveyDriverLog.println(
                     "Session id = " + sessionId); // e.g., 9c0d7d317d64cb53b6eaefc70427d4d8
         } else {
-            driver = new ChromeDriver(options);
+            ChromeDriver chromeDriver = new ChromeDriver(options);
+            sessionId = chromeDriver.getSessionId();
+            driver = chromeDriver;
+        }
+    }
+
+    /** Set up the driver and its "wait" object. */
+    void setUp() {
+        startBrowser(!USE_CONSOLE_EVENTS);
+        if (USE_CONSOLE_EVENTS && getDevTools() == null) {
+            /*
+             * The browser log can only be enabled when the session is created, and without DevTools
+             * it is the only way to see the console, so start again with it enabled
+             */
+            SurveyDriverLog.println("❗ Restarting the browser to poll its log instead");
+            driver.quit();
+            startBrowser(true);
         }
         wait =
                 new WebDriverWait(
                         driver,
                         Duration.ofSeconds(TIME_OUT_SECONDS),
                         Duration.ofMillis(SLEEP_MILLISECONDS));
-        if (USE_REMOTE_WEBDRIVER) {
+        /*
+         * The script timeout must allow for the longest DOM wait, plus some time for the round trip
+         */
+        driver.manage().timeouts().scriptTimeout(Duration.ofSeconds(TIME_OUT_SECONDS + 5));
+        domWait = new SurveyDriverDomWait(driver, TimeUnit.SECONDS.toMillis(TIME_OUT_SECONDS));
+        voteTimer = new SurveyDriverVoteTimer(driver);
+        logScanner = new SurveyDriverLogScanner(driver);
+        pageTiming = new SurveyDriverPageTiming(driver);
+        rowCache = new SurveyDriverRowCache(driver);
+        if (USE_CONSOLE_EVENTS) {
+            console = new SurveyDriverConsole(logScanner, CONSOLE_BUFFER_CAPACITY);
+            if (!console.start(getDevTools())) {
+                console = null;
+            }
+        }
+        if (userIndexAssigned) {
+            /*
+             * Concurrent sessions must never share an account, so if another session in this JVM
+             * has the assigned index, use a free one instead
+             */
+            if (!SurveyDriverGrid.getGlobal().reserve(userIndex)) {
+                int assigned = userIndex;
+                userIndex = SurveyDriverGrid.getGlobal().allocate(-1);
+                SurveyDriverLog.println(
+                        "❗ User index "
+                                + assigned
+                                + " is already used by another session; using "
+                                + userIndex
+                                + " instead");
+            }
+            userIndexHeld = true;
+        } else {
             userIndex = getUserIndexFromGrid(sessionId);
+            userIndexHeld = true;
+        }
+        if (RECORD_HAR_FILES || RECORD_HAR_AGGREGATE) {
+            harRecorder =
+                    new SurveyDriverHarRecorder(
+                            String.valueOf(sessionId),
+                            userIndex,
+                            RECORD_HAR_FILES,
+                            RECORD_HAR_AGGREGATE);
+            if (!harRecorder.start(getDevTools())) {
+                harRecorder = null;
+            }
+        }
+    }
+
+    /**
+     * Get the DevTools connection for this session, connecting the first time
+     *
+     * @return the connection, or null if DevTools is not available
+     */
+    private DevTools getDevTools() {
+        if (devTools != null) {
+            return devTools;
+        }
+        try {
+            WebDriver d = driver;
+            if (d instanceof RemoteWebDriver && !(d instanceof HasDevTools)) {
+                d = new Augmenter().augment(d);
+            }
+            if (!(d instanceof HasDevTools)) {
+                SurveyDriverLog.println("DevTools not available for this driver");
+                return null;
+            }
+            devTools = ((HasDevTools) d).getDevTools();
+            devTools.createSessionIfThereIsNotOne();
+        } catch (Exception e) {
+            SurveyDriverLog.println("DevTools not available; " + e);
+            devTools = null;
+        }
+        return devTools;
+    }
+
+    /**
+     * Get the user index, which is only determined from the grid during setUp
+     *
+     * @return the user index
+     */
+    int getUserIndex() {
+        return userIndex;
+    }
+
+    /**
+     * Check whether this session can still be used, for example before reusing it
+     *
+     * @return true if the browser responds, else false
+     */
+    boolean isHealthy() {
+        if (driver == null) {
+            return false;
+        }
+        try {
+            ((JavascriptExecutor) driver).executeScript("return document.readyState");
+            return true;
+        } catch (Exception e) {
+            SurveyDriverLog.println("Session " + sessionId + " is unhealthy; " + e);
+            return false;
+        }
+    }
+
+    /**
+     * Report and reset what was measured during the scenarios just run, so that the session can be
+     * reused for others
+     */
+    void endScenarios() {
+        latency.mergeInto(SurveyDriverLatency.getGlobal());
+        latency.reset();
+        if (logScanner != null) {
+            logScanner.report();
+        }
+        if (rowCache != null) {
+            SurveyDriverLog.println("Vetting-table elements: " + rowCache.getStats());
+            rowCache.clear();
         }
     }
 
     /** Clean up when finished testing. */
-    private void tearDown() {
+    void tearDown() {
+        endScenarios();
+        tearDown(true);
+    }
+
+    /**
+     * Quit the browser and release everything belonging to this session
+     *
+     * @param pause true to wait a few seconds first, so that the browser can be seen
+     */
+    void tearDown(boolean pause) {
         SurveyDriverLog.println(
                 "cldr-apps-webdriver is quitting, goodbye from sessionId " + sessionId);
+        if (console != null) {
+            console.stop();
+        }
+        if (harRecorder != null) {
+            harRecorder.stop();
+        }
+        if (devTools != null) {
+            try {
+                devTools.close();
+            } catch (Exception e) {
+                SurveyDriverLog.println(e);
+            }
+        }
         if (driver != null) {
             /*
              * This five-second sleep may not always be appropriate. It can help to see the browser for a few seconds
              * before it closes. Alternatively a breakpoint can be set on driver.quit() for the same purpose.
              */
-            try {
-                Thread.sleep(5000);
-            } catch (Exception e) {
-                SurveyDriverLog.println("Sleep interrupted before driver.quit; " + e);
+            if (pause) {
+                try {
+                    Thread.sleep(5000);
+                } catch (Exception e) {
+                    SurveyDriverLog.println("Sleep interrupted before driver.quit; " + e);
+                }
             }
             driver.quit();
         }
+        if (userIndexHeld) {
+            SurveyDriverGrid.getGlobal().release(userIndex);
+            userIndexHeld = false;
+        }
     }
 
+    /*
+     * The locale, page, and rows for fast voting.
+     * TODO: instead of hard-coding these hexadecimal row ids, specify the first four
+     * "tr" elements of the main table using the appropriate findElement(By...).
+     * Displayed rows depend on coverage level, which in turn depends on the user; if we're logged
+     * in as Admin, then we see Comprehensive; if not logged in, we see Modern (and we can't vote).
+     * Something seems to have changed between versions 34 and 35; now first four rows are:
+     *     Abkhazian ► ab	row_f3d4397b739b287
+     * 	   Achinese ► ace	row_6899b21f19eef8cc
+     * 	   Acoli ► ach		row_1660459cc74c9aec
+     * 	   Adangme ► ada	row_7d1d3cbd260601a4
+     * Acoli appears to be a new addition.
+     */
+    static final String FAST_VOTING_LOCALE = "sr";
+    static final String FAST_VOTING_PAGE = "Languages_A_D";
+    static final String[] FAST_VOTING_ROW_IDS = {
+        "f3d4397b739b287", "6899b21f19eef8cc", "1660459cc74c9aec", "7d1d3cbd260601a4"
+    };
+
     /**
      * Test "fast" voting, that is, voting for several items on a page, and measuring the time of
      * response.
@@ -190,8 +583,8 @@ public class SurveyDriver {
          * TODO: configure the locale and page on a per-slot basis, to enable multiple simulated
          * users to be voting in multiple locales and/or pages.
          */
-        String loc = "sr";
-        String page = "Languages_A_D";
+        String loc = FAST_VOTING_LOCALE;
+        String page = FAST_VOTING_PAGE;
         String url = BASE_URL + "v#/" + loc + "/" + page;
 
         /*
@@ -202,7 +595,8 @@ public class SurveyDriver {
         for (int i = 0; i < REPETITION_COUNT; i++) {
             SurveyDriverLog.println("testFastVoting i = " + i);
             try {
-                if (!testFastVotingInner(page, url)) {
+                if (!testFastVotingInner(loc, page, url)) {
+                    latency.report("for fast voting, user " + userIndex);
                     return false;
                 }
             } catch (StaleElementReferenceException e) {
@@ -218,29 +612,20 @@ public class SurveyDriver {
                         "Continuing main loop after StaleElementReferenceException, i = " + i);
             }
         }
+        latency.report("for fast voting, user " + userIndex);
         SurveyDriverLog.println("✅ Fast vote test passed for " + loc + ", " + page);
         return true;
     }
 
-    private boolean testFastVotingInner(String page, String url) {
+    private boolean testFastVotingInner(String loc, String page, String url) {
+        final long loadStartTime = System.nanoTime();
         driver.get(url);
+        rowCache.clear();
         /*
-         * Wait for the correct title, and then wait for the div
-         * whose id is "LoadingMessageSection" to get the style "display: none".
-         */
-        if (!waitForTitle(page, url)) {
-            return false;
-        }
-        if (!waitUntilLoadingMessageDone(url)) {
-            return false;
-        }
-        if (!hideLeftSidebar(url)) {
-            return false;
-        }
-        if (!waitUntilElementInactive("left-sidebar", url)) {
-            return false;
-        }
-        /*
+         * Wait for the correct title, for the div whose id is "LoadingMessageSection" to get the
+         * style "display: none", for the left sidebar to be hidden, and for the overlay to be
+         * inactive.
+         *
          * TODO: handle "overlay" element more robustly. While this mostly works, the overlay can
          * pop up again when you least expect it, causing, for example:
          *
@@ -248,34 +633,25 @@ public class SurveyDriver {
          * title="click to vote" value="الأدانجمية"> is not clickable at point (746, 429).
          * Other element would receive the click: <div id="overlay" class="" style="z-index: 1000;"></div>
          */
-        if (!waitUntilElementInactive("overlay", url)) {
+        SurveyDriverReadiness readiness =
+                newReadiness().title(page).loaded().sidebarHidden().overlayInactive();
+        if (!waitUntilPageReady(readiness, url, loadStartTime, loc, page)) {
             return false;
         }
         if (!gotComprehensiveCoverage && !chooseComprehensiveCoverage(url)) {
             return false;
         }
         gotComprehensiveCoverage = true;
+        voteTimer.install();
 
-        double firstClickTime = 0;
+        long firstClickTime = 0;
 
         /*
          * For the first four rows, click on the Abstain (nocell) button.
          * Then, for the first three rows, click on the Winning (proposedcell) button.
          * Then, for the fourth row, click on the Add (addcell) button and enter a new value.
-         * TODO: instead of hard-coding these hexadecimal row ids, specify the first four
-         * "tr" elements of the main table using the appropriate findElement(By...).
-         * Displayed rows depend on coverage level, which in turn depends on the user; if we're logged
-         * in as Admin, then we see Comprehensive; if not logged in, we see Modern (and we can't vote).
-         * Something seems to have changed between versions 34 and 35; now first four rows are:
-         *     Abkhazian ► ab	row_f3d4397b739b287
-         * 	   Achinese ► ace	row_6899b21f19eef8cc
-         * 	   Acoli ► ach		row_1660459cc74c9aec
-         * 	   Adangme ► ada	row_7d1d3cbd260601a4
-         * Acoli appears to be a new addition.
          */
-        String[] rowIds = {
-            "f3d4397b739b287", "6899b21f19eef8cc", "1660459cc74c9aec", "7d1d3cbd260601a4"
-        };
+        String[] rowIds = FAST_VOTING_ROW_IDS;
         String[] cellClasses = {"nocell", "proposedcell"};
         final boolean verbose = true;
         for (String cell : cellClasses) {
@@ -284,84 +660,22 @@ public class SurveyDriver {
                 boolean doAdd = (i == rowIds.length - 1) && cell.equals("proposedcell");
                 String tagName = doAdd ? "button" : "input";
                 String cellClass = doAdd ? "addcell" : cell;
-                WebElement rowEl = null, columnEl, clickEl = null;
-                int repeats = 0;
                 if (verbose) {
                     String op = cell.equals("nocell") ? "Abstain" : "Vote";
                     SurveyDriverLog.println(op + " row " + (i + 1) + " (" + rowId + ")");
                 }
-                for (; ; ) {
-                    try {
-                        rowEl = driver.findElement(By.id(rowId));
-                    } catch (StaleElementReferenceException e) {
-                        if (++repeats > 4) {
-                            break;
-                        }
-                        SurveyDriverLog.println(
-                                "Continuing after StaleElementReferenceException for findElement by id rowId "
-                                        + rowId
-                                        + " for "
-                                        + url);
-                        continue;
-                    } catch (Exception e) {
-                        SurveyDriverLog.println(e);
-                        break;
-                    }
-                    if (rowEl == null) {
-                        SurveyDriverLog.println(
-                                "❌ Fast vote test failed, missing row id " + rowId + " for " + url);
-                        return false;
-                    }
-                    try {
-                        columnEl = rowEl.findElement(By.className(cellClass));
-                    } catch (StaleElementReferenceException e) {
-                        if (++repeats > 4) {
-                            break;
-                        }
-                        SurveyDriverLog.println(
-                                "Continuing after StaleElementReferenceException for findElement by class cellClass "
-                                        + cellClass
-                                        + " for "
-                                        + url);
-                        continue;
-                    } catch (Exception e) {
-                        SurveyDriverLog.println(e);
-                        break;
-                    }
-                    if (columnEl == null) {
-                        SurveyDriverLog.println(
-                                "❌ Fast vote test failed, no column "
-                                        + cellClass
-                                        + " for row "
-                                        + rowId
-                                        + " for "
-                                        + url);
-                        return false;
-                    }
-                    try {
-                        clickEl = columnEl.findElement(By.tagName(tagName));
-                    } catch (StaleElementReferenceException e) {
-                        if (++repeats > 4) {
-                            break;
-                        }
-                        SurveyDriverLog.println(
-                                "Continuing after StaleElementReferenceException for findElement by tagName "
-                                        + rowId
-                                        + " for "
-                                        + url);
-                        continue;
-                    } catch (Exception e) {
-                        SurveyDriverLog.println(e);
-                        break;
-                    }
-                    break;
-                }
+                voteTimer.expect(rowId, doAdd ? "add" : cell.equals("nocell") ? "abstain" : "vote");
+                WebElement clickEl = findRowCellTagElement(rowId, cellClass, tagName);
                 if (clickEl == null) {
                     SurveyDriverLog.println(
-                            "❌ Fast vote test failed, no tag "
-                                    + tagName
-                                    + " for row "
+                            "❌ Fast vote test failed, no "
+                                    + rowCache.getLastMissing()
+                                    + " for "
                                     + rowId
+                                    + ","
+                                    + cellClass
+                                    + ","
+                                    + tagName
                                     + " for "
                                     + url);
                     return false;
@@ -383,30 +697,10 @@ public class SurveyDriver {
                                     + url);
                     return false;
                 }
-                if (firstClickTime == 0.0) {
-                    firstClickTime = System.currentTimeMillis();
-                }
-                try {
-                    clickOnRowCellTagElement(clickEl, rowId, cellClass, tagName, url);
-                } catch (StaleElementReferenceException e) {
-                    if (++repeats > 4) {
-                        break;
-                    }
-                    SurveyDriverLog.println(
-                            "Continuing after StaleElementReferenceException for clickEl.click for row "
-                                    + rowId
-                                    + " for "
-                                    + url);
-                    continue;
-                } catch (Exception e) {
-                    SurveyDriverLog.println(e);
-                    SurveyDriverLog.println(
-                            "❌ Fast vote test failed, clickEl.click for row "
-                                    + rowId
-                                    + " for "
-                                    + url);
-                    return false;
+                if (firstClickTime == 0) {
+                    firstClickTime = System.nanoTime();
                 }
+                clickOnRowCellTagElement(clickEl, rowId, cellClass, tagName, url);
                 if (doAdd) {
                     try {
                         /*
@@ -414,7 +708,9 @@ public class SurveyDriver {
                          * must be for rowEl which isn't re-gotten. For now at least, just continue loop if
                          * waitInputBoxAppears returns null.
                          */
-                        WebElement inputEl = waitInputBoxAppears(rowEl, url);
+                        WebElement rowEl = findRowCellTagElement(rowId, null, null);
+                        WebElement inputEl =
+                                (rowEl == null) ? null : waitInputBoxAppears(rowEl, url);
                         if (inputEl == null) {
                             SurveyDriverLog.println(
                                     "Warning: continuing, didn't see input box for " + url);
@@ -451,16 +747,59 @@ public class SurveyDriver {
         if (!waitUntilClassExists("tr_checking2", false, url)) {
             return false;
         }
-        double deltaTime = System.currentTimeMillis() - firstClickTime;
+        double deltaTime = (System.nanoTime() - firstClickTime) / 1e6;
         SurveyDriverLog.println(
                 "Total time elapsed since first click = " + deltaTime / 1000.0 + " sec");
+        latency.recordSince("all-votes", loc, page, firstClickTime);
+        voteTimer.record(latency, loc, page);
+        logPageTiming(loc, loc, page);
         return true;
     }
 
     /** Log into Survey Tool. */
     public boolean login() {
         final String url = BASE_URL;
+        if (loggedIn) {
+            SurveyDriverLog.println("Already logged in to " + url + " as user " + userIndex);
+            return true;
+        }
         SurveyDriverLog.println("Logging in to " + url);
+        final SurveyDriverCredentials cred = SurveyDriverCredentials.getForUser(userIndex);
+        final SurveyDriverLoginCache loginCache = SurveyDriverLoginCache.getGlobal();
+        synchronized (loginCache.lockFor(cred.getEmail())) {
+            if (!loadLoginPage(url)) {
+                return false;
+            }
+            if (USE_LOGIN_CACHE && loginWithCookies(loginCache, cred, url)) {
+                loggedIn = true;
+                return true;
+            }
+            if (!loginWithButton(cred, url)) {
+                return false;
+            }
+            /*
+             * To make sure we're really logged in, find an element with class "glyphicon-user".
+             */
+            if (!waitUntilClassExists("glyphicon-user", true, url)) {
+                SurveyDriverLog.println(
+                        "❌ Login failed, glyphicon-user icon never appeared in " + url);
+                return false;
+            }
+            if (USE_LOGIN_CACHE) {
+                loginCache.capture(cred.getEmail(), driver.manage().getCookies());
+            }
+        }
+        loggedIn = true;
+        return true;
+    }
+
+    /**
+     * Load the page from which to log in
+     *
+     * @param url the url of the page
+     * @return true for success, false for failure
+     */
+    private boolean loadLoginPage(String url) {
         driver.get(url);
 
         /*
@@ -471,27 +810,63 @@ public class SurveyDriver {
         if (!waitForTitle(page, url)) {
             return false;
         }
-        if (!waitUntilLoadingMessageDone(url)) {
+        return waitUntilLoadingMessageDone(url);
+    }
+
+    /**
+     * Try to log in with the cookies of an earlier login by the same user. Cookies can only be
+     * added for the domain of the current page, so the login page must already be loaded. If the
+     * cookies don't work, they are forgotten, and the login page is loaded again without them.
+     *
+     * @param loginCache the cache of cookies
+     * @param cred the credentials of the user
+     * @param url the url of the login page
+     * @return true if logged in, false if the caller should log in through the user interface
+     */
+    private boolean loginWithCookies(
+            SurveyDriverLoginCache loginCache, SurveyDriverCredentials cred, String url) {
+        Set<Cookie> cookies = loginCache.get(cred.getEmail());
+        if (cookies == null) {
             return false;
         }
-        if (!loginWithButton(url)) {
+        try {
+            driver.manage().deleteAllCookies();
+            for (Cookie c : cookies) {
+                driver.manage().addCookie(c);
+            }
+        } catch (Exception e) {
+            SurveyDriverLog.println("Unable to add cookies for " + cred.getEmail() + "; " + e);
+            loginCache.reject(cred.getEmail());
+            driver.manage().deleteAllCookies();
             return false;
         }
+        if (loadLoginPage(url)) {
+            Boolean ok =
+                    new SurveyDriverDomWait(driver, LOGIN_VERIFY_MILLISECONDS)
+                            .until(SurveyDriverDomWait.classExists("glyphicon-user", true));
+            if (ok == null) {
+                ok = !driver.findElements(By.className("glyphicon-user")).isEmpty();
+            }
+            if (ok) {
+                SurveyDriverLog.println("Logged in with cached cookies as " + cred.getEmail());
+                loginCache.reused();
+                return true;
+            }
+        }
+        SurveyDriverLog.println("Cached cookies no longer work for " + cred.getEmail());
+        loginCache.reject(cred.getEmail());
+        driver.manage().deleteAllCookies();
         /*
-         * To make sure we're really logged in, find an element with class "glyphicon-user".
+         * If the page doesn't load, the login through the user interface will fail and report it
          */
-        if (!waitUntilClassExists("glyphicon-user", true, url)) {
-            SurveyDriverLog.println("❌ Login failed, glyphicon-user icon never appeared in " + url);
-            return false;
-        }
-        return true;
+        loadLoginPage(url);
+        return false;
     }
 
-    private boolean loginWithButton(String url) {
+    private boolean loginWithButton(SurveyDriverCredentials cred, String url) {
         final String loginXpath = "//span[text()='Log In']";
         final String usernameXpath = "//input[@placeholder='Username']";
         final String passwordXpath = "//input[@placeholder='Password']";
-        final SurveyDriverCredentials cred = SurveyDriverCredentials.getForUser(userIndex);
         if (!clickButtonByXpath(loginXpath, url)) {
             return false;
         }
@@ -604,51 +979,30 @@ public class SurveyDriver {
         return true;
     }
 
-    /** Test all the locales and pages we're interested in. */
-    private boolean testAllLocalesAndPages() {
-        String[] locales = SurveyDriverData.getLocales();
-        String[] pages = SurveyDriverData.getPages();
-        /*
-         * Reference: https://unicode.org/cldr/trac/ticket/11238 "browser console shows error message,
-         * there is INHERITANCE_MARKER without inheritedValue"
-         */
-        String searchString =
-                "INHERITANCE_MARKER without inheritedValue"; // formerly, "there is no Bailey Target
-        // item"
-
-        for (String loc : locales) {
-            // for (PathHeader.PageId page : PathHeader.PageId.values()) {
-            for (String page : pages) {
-                if (!testOneLocationAndPage(loc, page, searchString)) {
-                    return false;
-                }
-            }
-        }
-        return true;
-    }
-
     /**
      * Test the given locale and page.
      *
      * @param loc the locale string, like "pt_PT"
      * @param page the page name, like "Alphabetic_Information"
+     * @param searchString one of SurveyDriverLogScanner.SIGNATURES, whose occurrence in the log
+     *     means failure
      * @return true if all parts of the test pass, else false
      */
-    private boolean testOneLocationAndPage(String loc, String page, String searchString) {
+    boolean testOneLocationAndPage(String loc, String page, String searchString) {
         String url = BASE_URL + "v#/" + loc + "/" + page;
+        final long loadStartTime = System.nanoTime();
         driver.get(url);
 
         /*
          * Wait for the correct title, and then wait for the div
          * whose id is "LoadingMessageSection" to get the style "display: none".
          */
-        if (!waitForTitle(page, url)) {
-            return false;
-        }
-        if (!waitUntilLoadingMessageDone(url)) {
+        if (!waitUntilPageReady(
+                newReadiness().title(page).loaded(), url, loadStartTime, "*", page)) {
             return false;
         }
-        int searchStringCount = countLogEntriesContainingString(searchString);
+        logPageTiming("*", loc, page);
+        int searchStringCount = logScanner.takeCount(searchString);
         if (searchStringCount > 0) {
             SurveyDriverLog.println(
                     "❌ Test failed: "
@@ -657,6 +1011,9 @@ public class SurveyDriver {
                             + searchString
                             + "' for "
                             + url);
+            if (console != null) {
+                console.printRecent(CONSOLE_FAILURE_ENTRY_COUNT);
+            }
             return false;
         }
         SurveyDriverLog.println(
@@ -719,25 +1076,120 @@ public class SurveyDriver {
     }
 
     /**
-     * Count how many log entries contain the given string.
+     * Record and log the page timing for the requests since the previous call
+     *
+     * @param latencyLoc the locale for the latency keys, or "*" to combine all locales
+     * @param loc the locale, for the log
+     * @param page the page
+     */
+    void logPageTiming(String latencyLoc, String loc, String page) {
+        String summary = pageTiming.harvest(latency, latencyLoc, page);
+        if (summary != null && !summary.isEmpty()) {
+            SurveyDriverLog.println("Timing for " + loc + "/" + page + ": " + summary);
+        }
+    }
+
+    /**
+     * Wait until a condition is true, by means of domWait if USE_DOM_WAITS is true and the page
+     * allows it, otherwise by polling with the "wait" object.
+     *
+     * @param domCondition the condition, for domWait
+     * @param pollCondition the same condition, for polling
+     * @return true for success, false for failure
+     */
+    private boolean waitUntil(
+            SurveyDriverDomWait.Condition domCondition, ExpectedCondition<Boolean> pollCondition) {
+        if (USE_DOM_WAITS) {
+            Boolean ok = domWait.until(domCondition);
+            if (ok != null) {
+                return ok;
+            }
+        }
+        try {
+            wait.until(pollCondition);
+        } catch (Exception e) {
+            SurveyDriverLog.println(e);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Get a readiness probe for this session, to which conditions can be added, as in
+     * newReadiness().title(page).loaded()
      *
-     * @param searchString the string for which to search
-     * @return the number of occurrences
+     * @return the probe
      */
-    private int countLogEntriesContainingString(String searchString) {
-        int searchStringCount = 0;
-        Logs logs = driver.manage().logs();
-        for (String type : logs.getAvailableLogTypes()) {
-            List<LogEntry> logEntries = logs.get(type).getAll();
-            for (LogEntry entry : logEntries) {
-                String message = entry.getMessage();
-                if (message.contains(searchString)) {
-                    SurveyDriverLog.println(entry.toString());
-                    ++searchStringCount;
+    SurveyDriverReadiness newReadiness() {
+        return new SurveyDriverReadiness(driver, TimeUnit.SECONDS.toMillis(TIME_OUT_SECONDS));
+    }
+
+    /**
+     * Wait until all the conditions of the readiness probe are true, recording for each condition
+     * the time from the start of loading until it became true, with the condition's name ("title",
+     * "loaded", "sidebar", "overlay") as the operation.
+     *
+     * <p>If USE_DOM_WAITS is false or the probe can't run in the page, wait for the conditions one
+     * at a time instead.
+     *
+     * @param readiness the probe
+     * @param url the url we're loading
+     * @param startNanos the System.nanoTime() when loading started
+     * @param latencyLoc the locale for recording the latency, such as "*" to combine all locales
+     * @param page the page, for recording the latency
+     * @return true for success, false for failure
+     */
+    boolean waitUntilPageReady(
+            SurveyDriverReadiness readiness,
+            String url,
+            long startNanos,
+            String latencyLoc,
+            String page) {
+        if (USE_DOM_WAITS) {
+            List<String> pending = readiness.await(startNanos);
+            if (pending != null) {
+                readiness
+                        .getReadyMicros()
+                        .forEach(
+                                (name, micros) ->
+                                        latency.recordMicros(
+                                                SurveyDriverLatency.key(name, latencyLoc, page),
+                                                micros));
+                if (!pending.isEmpty()) {
+                    SurveyDriverLog.println(
+                            "❌ Test failed, maybe timed out, waiting for "
+                                    + pending
+                                    + " in "
+                                    + url);
+                    return false;
                 }
+                return true;
             }
         }
-        return searchStringCount;
+        for (String name : readiness.getNames()) {
+            boolean ok;
+            switch (name) {
+                case SurveyDriverReadiness.TITLE:
+                    ok = waitForTitle(readiness.getTitle(), url);
+                    break;
+                case SurveyDriverReadiness.LOADED:
+                    ok = waitUntilLoadingMessageDone(url);
+                    break;
+                case SurveyDriverReadiness.SIDEBAR:
+                    ok = hideLeftSidebar(url) && waitUntilElementInactive("left-sidebar", url);
+                    break;
+                case SurveyDriverReadiness.OVERLAY:
+                    ok = waitUntilElementInactive("overlay", url);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown readiness condition: " + name);
+            }
+            if (!ok) {
+                return false;
+            }
+            latency.recordSince(name, latencyLoc, page, startNanos);
+        }
+        return true;
     }
 
     /**
@@ -748,13 +1200,10 @@ public class SurveyDriver {
      * @return true for success, false for failure
      */
     public boolean waitForTitle(String s, String url) {
-        try {
-            wait.until(
-                    (ExpectedCondition<Boolean>)
-                            webDriver ->
-                                    (Objects.requireNonNull(webDriver).getTitle().contains(s)));
-        } catch (Exception e) {
-            SurveyDriverLog.println(e);
+        if (!waitUntil(
+                SurveyDriverDomWait.titleContains(s),
+                (ExpectedCondition<Boolean>)
+                        webDriver -> (Objects.requireNonNull(webDriver).getTitle().contains(s)))) {
             SurveyDriverLog.println(
                     "❌ Test failed, maybe timed out, waiting for title to contain "
                             + s
@@ -773,16 +1222,14 @@ public class SurveyDriver {
      */
     public boolean waitUntilLoadingMessageDone(String url) {
         String loadingId = "LoadingMessageSection";
-        try {
-            wait.until(
-                    (ExpectedCondition<Boolean>)
-                            webDriver ->
-                                    Objects.requireNonNull(webDriver)
-                                            .findElement(By.id(loadingId))
-                                            .getCssValue("display")
-                                            .contains("none"));
-        } catch (Exception e) {
-            SurveyDriverLog.println(e);
+        if (!waitUntil(
+                SurveyDriverDomWait.displayNone(loadingId),
+                (ExpectedCondition<Boolean>)
+                        webDriver ->
+                                Objects.requireNonNull(webDriver)
+                                        .findElement(By.id(loadingId))
+                                        .getCssValue("display")
+                                        .contains("none"))) {
             SurveyDriverLog.println(
                     "❌ Test failed, maybe timed out, waiting for " + loadingId + " in " + url);
             return false;
@@ -834,16 +1281,14 @@ public class SurveyDriver {
      * @return true for success, false for failure
      */
     public boolean waitUntilElementActive(String id, String url) {
-        try {
-            wait.until(
-                    (ExpectedCondition<Boolean>)
-                            webDriver -> {
-                                WebElement el =
-                                        Objects.requireNonNull(webDriver).findElement(By.id(id));
-                                return el != null && el.getAttribute("class").contains("active");
-                            });
-        } catch (Exception e) {
-            SurveyDriverLog.println(e);
+        if (!waitUntil(
+                SurveyDriverDomWait.elementActive(id, true),
+                (ExpectedCondition<Boolean>)
+                        webDriver -> {
+                            WebElement el =
+                                    Objects.requireNonNull(webDriver).findElement(By.id(id));
+                            return el != null && el.getAttribute("class").contains("active");
+                        })) {
             SurveyDriverLog.println(
                     "❌ Test failed, maybe timed out, waiting for " + id + " in " + url);
             return false;
@@ -859,16 +1304,14 @@ public class SurveyDriver {
      * @return true for success, false for failure
      */
     public boolean waitUntilElementInactive(String id, String url) {
-        try {
-            wait.until(
-                    (ExpectedCondition<Boolean>)
-                            webDriver -> {
-                                WebElement el =
-                                        Objects.requireNonNull(webDriver).findElement(By.id(id));
-                                return el == null || !el.getAttribute("class").contains("active");
-                            });
-        } catch (Exception e) {
-            SurveyDriverLog.println(e);
+        if (!waitUntil(
+                SurveyDriverDomWait.elementActive(id, false),
+                (ExpectedCondition<Boolean>)
+                        webDriver -> {
+                            WebElement el =
+                                    Objects.requireNonNull(webDriver).findElement(By.id(id));
+                            return el == null || !el.getAttribute("class").contains("active");
+                        })) {
             SurveyDriverLog.println(
                     "❌ Test failed, maybe timed out, waiting for inactive id " + id + " in " + url);
             return false;
@@ -890,35 +1333,25 @@ public class SurveyDriver {
          * Note that the add button does NOT contain the input tag, but the addcell contains both the add button
          * and the input tag.
          */
-        WebElement inputEl = null;
-        int repeats = 0;
-        for (; ; ) {
-            try {
-                WebElement addCell = rowEl.findElement(By.className("addcell"));
-                inputEl =
-                        wait.until(
-                                ExpectedConditions.presenceOfNestedElementLocatedBy(
-                                        addCell, By.tagName("input")));
-                /*
-                 * TODO: don't wait here for 30 seconds, as sometimes happens...
-                 */
-            } catch (StaleElementReferenceException e) {
-                if (++repeats > 4) {
-                    break;
-                }
-                SurveyDriverLog.println(
-                        "waitInputBoxAppears repeating for StaleElementReferenceException");
-                continue;
-            } catch (Exception e) {
-                /*
-                 * org.openqa.selenium.TimeoutException: Expected condition failed: waiting for visibility of element located by By.tagName:
-                 * input (tried for 30 second(s) with 100 milliseconds interval)
-                 */
-                SurveyDriverLog.println(e);
-                SurveyDriverLog.println(
-                        "❌ Test failed, maybe timed out, waiting for input in addcell in " + url);
-            }
-            break;
+        WebElement inputEl =
+                SurveyDriverRetry.at("waitInputBoxAppears")
+                        .run(
+                                retry -> {
+                                    WebElement addCell = rowEl.findElement(By.className("addcell"));
+                                    /*
+                                     * TODO: don't wait here for 30 seconds, as sometimes happens...
+                                     * org.openqa.selenium.TimeoutException: Expected condition failed:
+                                     * waiting for visibility of element located by By.tagName: input
+                                     * (tried for 30 second(s) with 100 milliseconds interval)
+                                     */
+                                    return wait.until(
+                                            ExpectedConditions.presenceOfNestedElementLocatedBy(
+                                                    addCell, By.tagName("input")));
+                                },
+                                url);
+        if (inputEl == null) {
+            SurveyDriverLog.println(
+                    "❌ Test failed, maybe timed out, waiting for input in addcell in " + url);
         }
         return inputEl;
     }
@@ -971,6 +1404,20 @@ public class SurveyDriver {
         return true;
     }
 
+    /**
+     * Find the element specified by rowId, cellClass, tagName, by means of rowCache.
+     *
+     * @param rowId the id for the row element
+     * @param cellClass the class of the cell, typically "nocell", "proposedcell", or "addcell", or
+     *     null for the row itself
+     * @param tagName typically "button" or "input", or null for the cell itself
+     * @return the element, or null if not found; see rowCache.getLastMissing
+     */
+    WebElement findRowCellTagElement(String rowId, String cellClass, String tagName) {
+        rowCache.checkEpoch(logScanner.getTotal(RECREATE_TABLE_SIGNATURE));
+        return rowCache.get(rowId, cellClass, tagName);
+    }
+
     /**
      * Wait until the element specified by rowId, cellClass, tagName is clickable.
      *
@@ -983,40 +1430,28 @@ public class SurveyDriver {
      */
     public WebElement waitUntilRowCellTagElementClickable(
             WebElement clickEl, String rowId, String cellClass, String tagName, String url) {
-        int repeats = 0;
-        for (; ; ) {
-            try {
-                wait.until(ExpectedConditions.elementToBeClickable(clickEl));
-                return clickEl;
-            } catch (StaleElementReferenceException e) {
-                if (++repeats > 4) {
-                    break;
-                }
-                SurveyDriverLog.println(
-                        "waitUntilRowCellTagElementClickable repeating for StaleElementReferenceException");
-                WebElement rowEl = driver.findElement(By.id(rowId));
-                WebElement columnEl = rowEl.findElement(By.className(cellClass));
-                clickEl = columnEl.findElement(By.tagName(tagName));
-            } catch (NoSuchElementException e) {
-                if (++repeats > 4) {
-                    break;
-                }
-                SurveyDriverLog.println(
-                        "waitUntilRowCellTagElementClickable repeating for NoSuchElementException");
-                WebElement rowEl = driver.findElement(By.id(rowId));
-                WebElement columnEl = rowEl.findElement(By.className(cellClass));
-                clickEl = columnEl.findElement(By.tagName(tagName));
-            } catch (Exception e) {
-                /*
-                 * TODO: sometimes get here with org.openqa.selenium.NoSuchElementException
-                 *       no such element: Unable to locate element: {"method":"tag name","selector":"input"}
-                 * Called by testFastVotingInner with tagName = "input"
-                 * Repeat in that case, similar to StaleElementReferenceException? Or do we need to
-                 * repeat at a higher level, and/or re-get clickEl?
-                 */
-                SurveyDriverLog.println(e);
-                break;
-            }
+        WebElement el =
+                SurveyDriverRetry.at("waitUntilRowCellTagElementClickable")
+                        .on(
+                                List.of(
+                                        StaleElementReferenceException.class,
+                                        NoSuchElementException.class))
+                        .run(
+                                retry -> {
+                                    WebElement e =
+                                            (retry == 0)
+                                                    ? clickEl
+                                                    : rowCache.refresh(rowId, cellClass, tagName);
+                                    if (e == null) {
+                                        throw new NoSuchElementException(
+                                                "Missing " + rowCache.getLastMissing());
+                                    }
+                                    wait.until(ExpectedConditions.elementToBeClickable(e));
+                                    return e;
+                                },
+                                rowId + "," + cellClass + "," + tagName + " in " + url);
+        if (el != null) {
+            return el;
         }
         SurveyDriverLog.println(
                 "❌ Test failed in waitUntilRowCellTagElementClickable for "
@@ -1041,38 +1476,33 @@ public class SurveyDriver {
      */
     public void clickOnRowCellTagElement(
             WebElement clickEl, String rowId, String cellClass, String tagName, String url) {
-        int repeats = 0;
-        for (; ; ) {
-            try {
-                clickEl.click();
-                return;
-            } catch (StaleElementReferenceException e) {
-                if (++repeats > 4) {
-                    break;
-                }
-                SurveyDriverLog.println(
-                        "clickOnRowCellTagElement repeating for StaleElementReferenceException for "
-                                + rowId
-                                + ","
-                                + cellClass
-                                + ","
-                                + tagName
-                                + " in "
-                                + url);
-                int recreateStringCount =
-                        countLogEntriesContainingString(
-                                "insertRows: recreating table from scratch");
-                SurveyDriverLog.println(
-                        "clickOnRowCellTagElement: log has "
-                                + recreateStringCount
-                                + " scratch messages");
-                WebElement rowEl = driver.findElement(By.id(rowId));
-                WebElement columnEl = rowEl.findElement(By.className(cellClass));
-                clickEl = columnEl.findElement(By.tagName(tagName));
-            } catch (Exception e) {
-                SurveyDriverLog.println(e);
-                break;
-            }
+        Boolean clicked =
+                SurveyDriverRetry.at("clickOnRowCellTagElement")
+                        .run(
+                                retry -> {
+                                    WebElement e = clickEl;
+                                    if (retry > 0) {
+                                        int recreateStringCount =
+                                                logScanner.takeCount(RECREATE_TABLE_SIGNATURE);
+                                        SurveyDriverLog.println(
+                                                "clickOnRowCellTagElement: log has "
+                                                        + recreateStringCount
+                                                        + " scratch messages");
+                                        if (recreateStringCount > 0) {
+                                            rowCache.clear();
+                                        }
+                                        e = rowCache.refresh(rowId, cellClass, tagName);
+                                        if (e == null) {
+                                            throw new NoSuchElementException(
+                                                    "Missing " + rowCache.getLastMissing());
+                                        }
+                                    }
+                                    e.click();
+                                    return Boolean.TRUE;
+                                },
+                                rowId + "," + cellClass + "," + tagName + " in " + url);
+        if (clicked != null) {
+            return;
         }
         SurveyDriverLog.println(
                 "❗ Test failed in clickOnRowCellTagElement for "
@@ -1095,18 +1525,16 @@ public class SurveyDriver {
      * @return true for success, false for failure
      */
     public boolean waitUntilClassExists(String className, boolean checking, String url) {
-        try {
-            wait.until(
-                    (ExpectedCondition<Boolean>)
-                            webDriver -> {
-                                int elCount =
-                                        Objects.requireNonNull(webDriver)
-                                                .findElements(By.className(className))
-                                                .size();
-                                return checking ? (elCount > 0) : (elCount == 0);
-                            });
-        } catch (Exception e) {
-            SurveyDriverLog.println(e);
+        if (!waitUntil(
+                SurveyDriverDomWait.classExists(className, checking),
+                (ExpectedCondition<Boolean>)
+                        webDriver -> {
+                            int elCount =
+                                    Objects.requireNonNull(webDriver)
+                                            .findElements(By.className(className))
+                                            .size();
+                            return checking ? (elCount > 0) : (elCount == 0);
+                        })) {
             SurveyDriverLog.println(
                     "❌ Test failed, maybe timed out, waiting for class "
                             + className
@@ -1128,18 +1556,16 @@ public class SurveyDriver {
      * @return true for success, false for failure
      */
     public boolean waitUntilIdExists(String idName, boolean checking, String url) {
-        try {
-            wait.until(
-                    (ExpectedCondition<Boolean>)
-                            webDriver -> {
-                                int elCount =
-                                        Objects.requireNonNull(webDriver)
-                                                .findElements(By.id(idName))
-                                                .size();
-                                return checking ? (elCount > 0) : (elCount == 0);
-                            });
-        } catch (Exception e) {
-            SurveyDriverLog.println(e);
+        if (!waitUntil(
+                SurveyDriverDomWait.idExists(idName, checking),
+                (ExpectedCondition<Boolean>)
+                        webDriver -> {
+                            int elCount =
+                                    Objects.requireNonNull(webDriver)
+                                            .findElements(By.id(idName))
+                                            .size();
+                            return checking ? (elCount > 0) : (elCount == 0);
+                        })) {
             SurveyDriverLog.println(
                     "❌ Test failed, maybe timed out, waiting for id "
                             + idName
@@ -1151,57 +1577,47 @@ public class SurveyDriver {
         return true;
     }
 
+    /** Without a grid slot, the user index is preferably chosen at random from this many */
+    private static final int RANDOM_USER_INDEX_COUNT = 9;
+
     /**
      * Supposing there are n slots in the selenium grid, get a number in the range [0, ..., n - 1],
      * representing the particular slot we are using. This number will be used as the "user index"
      * identifying a unique Survey Tool simulated user, with a fictitious email address like
      * "driver-123@cldr-apps-webdriver.org", where 123 would be the user index.
      *
-     * @param sessionId the session id associated with our slot
+     * <p>If the slot can't be determined (or without the grid), or another session in this JVM
+     * already has that user index, the lowest user index not in use is chosen instead; see
+     * SurveyDriverGrid.
+     *
+     * @param sessionId the session id associated with our slot, or null without the grid
      * @return the user index, a nonnegative integer
      */
     private int getUserIndexFromGrid(SessionId sessionId) {
-        String url = REMOTE_WEBDRIVER_URL + "/status"; // http://localhost:4444/status
-        driver.get(url);
-        String jsonString = driver.findElement(By.tagName("body")).getText();
-        // SurveyDriverLog.println("jsonString = " + jsonString);
-
-        // Ideally, at this point we could convert the json into a NodeStatus object
-        // NodeStatus nodeStatus = NodeStatus.fromJson(jsonString);
-        //
-        // https://www.selenium.dev/selenium/docs/api/java/org/openqa/selenium/grid/data/NodeStatus.html
-        // Unfortunately it's not clear how to do that...
-        // Another way would be with gson:
-        //  SurveyDriverTestSession obj = new Gson().fromJson(jsonString,
-        // SurveyDriverNodeStatus.class);
-        // -- with our own imitation of NodeStatus, but that seems too difficult and error-prone.
-        // Another way would be to forget about NodeStatus, and simply assign a different user index
-        // each time we launch SurveyDriver, using our own mechanism independent of the grid...
-
-        // Crude work-around: each slot has "lastStarted" (1970 if never), sometimes followed by
-        // sessionId.
-        // For example:
-        // "lastStarted": "2023-12-21T03:24:37.017561Z",
-        //   "sessionId": "19049a348716f4dd825e330c47787573",
-        int uIndex = -1;
-        String sessionIdString = sessionId.toString();
-        int slotCount = 0;
-        for (String line : jsonString.split("\\n")) {
-            if (line.contains("lastStarted")) {
-                ++slotCount;
-            } else if (line.contains("sessionId") && line.contains(sessionIdString)) {
-                uIndex = slotCount - 1;
-                System.out.println("Setting user index to " + uIndex + "; based on " + url);
-                break;
-            }
-        }
-        if (uIndex < 0) {
-            uIndex = new Random().nextInt(9);
-            System.out.println(
-                    "Setting user index randomly to "
+        SurveyDriverGrid grid = SurveyDriverGrid.getGlobal();
+        int slotIndex =
+                (USE_REMOTE_WEBDRIVER && sessionId != null)
+                        ? grid.getSlotIndex(sessionId.toString())
+                        : -1;
+        /*
+         * Without a slot, prefer a random index, as formerly, so that separate processes (such as
+         * runs started from an IDE) are less likely to use the same accounts; the allocator only
+         * prevents collisions within this JVM
+         */
+        int preferred =
+                (slotIndex >= 0) ? slotIndex : new Random().nextInt(RANDOM_USER_INDEX_COUNT);
+        int uIndex = grid.allocate(preferred);
+        if (uIndex == slotIndex) {
+            SurveyDriverLog.println("Setting user index to " + uIndex + " based on grid slot");
+        } else if (slotIndex < 0 && uIndex == preferred) {
+            SurveyDriverLog.println(
+                    "Setting user index randomly to " + uIndex + "; grid slot unknown");
+        } else {
+            SurveyDriverLog.println(
+                    "Setting user index to "
                             + uIndex
-                            + "; unable to determine from "
-                            + url);
+                            + "; grid slot "
+                            + (slotIndex < 0 ? "unknown" : slotIndex + " already in use"));
         }
         return uIndex;
     }
@@ -0,0 +1,172 @@
+package org.unicode.cldr.surveydriver;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import org.openqa.selenium.json.Json;
+
+/**
+ * A client for the Survey Tool REST API, for simulating a vetter without a browser.
+ *
+ * <p>The requests are the same ones the Survey Tool front end makes (see the api/voting/.../row
+ * entries in HAR files analyzed by SurveyDriverHarAnalyzer). One HttpClient may be shared by any
+ * number of SurveyDriverApiClient instances; each instance has its own Survey Tool session and
+ * cookies. After login, an instance may be used by several threads at once.
+ */
+public class SurveyDriverApiClient {
+
+    /** The request header by which the Survey Tool session id is sent to the server */
+    static final String SESSION_HEADER = "X-SurveyTool-Session";
+
+    private static final Json json = new Json();
+
+    private final HttpClient http;
+    private final String baseUrl;
+    private final Map<String, String> cookies = new ConcurrentHashMap<>();
+    private volatile String sessionId = null;
+
+    /**
+     * @param http the HttpClient, possibly shared with other instances
+     * @param baseUrl the Survey Tool URL, like "http://localhost:9080/cldr-apps/"
+     */
+    public SurveyDriverApiClient(HttpClient http, String baseUrl) {
+        this.http = http;
+        this.baseUrl = baseUrl;
+    }
+
+    /**
+     * Make an HttpClient suitable for sharing among many instances
+     *
+     * @return the new HttpClient
+     */
+    public static HttpClient newHttpClient() {
+        return HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(SurveyDriver.TIME_OUT_SECONDS))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    /**
+     * Log into Survey Tool
+     *
+     * @param cred the credentials
+     * @throws IOException if the server does not respond with a session id
+     * @throws InterruptedException if interrupted while waiting for the response
+     */
+    public void login(SurveyDriverCredentials cred) throws IOException, InterruptedException {
+        Map<String, Object> content = new LinkedHashMap<>();
+        content.put("email", cred.getEmail());
+        content.put("password", cred.getPassword());
+        Map<String, Object> response = post("api/auth/login", content);
+        Object id = response.get("sessionId");
+        if (id == null) {
+            throw new IOException("No sessionId in login response for " + cred.getEmail());
+        }
+        sessionId = id.toString();
+    }
+
+    /**
+     * @return the Survey Tool session id, or null if not logged in
+     */
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    /**
+     * Get the data for the given page, as the front end does when the page is opened
+     *
+     * @param loc the locale, like "sr"
+     * @param page the page, like "Languages_A_D"
+     * @return the response
+     */
+    public Map<String, Object> getPage(String loc, String page)
+            throws IOException, InterruptedException {
+        return get("api/voting/" + loc + "/page/" + page);
+    }
+
+    /**
+     * Get the Dashboard for the given locale, as the front end does when the Dashboard is opened
+     *
+     * @param loc the locale, like "fr"
+     * @param level the coverage level, like "comprehensive"
+     * @return the response
+     */
+    public Map<String, Object> getDashboard(String loc, String level)
+            throws IOException, InterruptedException {
+        return get("api/summary/dashboard/" + loc + "/" + level);
+    }
+
+    /**
+     * Vote for a value in the given row, or abstain
+     *
+     * @param loc the locale
+     * @param xpstrid the hexadecimal id of the row's path, like "f3d4397b739b287"
+     * @param value the value, or null to abstain
+     * @return the response
+     */
+    public Map<String, Object> vote(String loc, String xpstrid, String value)
+            throws IOException, InterruptedException {
+        Map<String, Object> content = new LinkedHashMap<>();
+        content.put("value", value);
+        content.put("voteLevelChanged", 0);
+        return post("api/voting/" + loc + "/row/" + xpstrid, content);
+    }
+
+    private Map<String, Object> get(String path) throws IOException, InterruptedException {
+        return send(newRequest(path).GET());
+    }
+
+    private Map<String, Object> post(String path, Map<String, Object> content)
+            throws IOException, InterruptedException {
+        return send(
+                newRequest(path)
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(json.toJson(content))));
+    }
+
+    private HttpRequest.Builder newRequest(String path) {
+        HttpRequest.Builder b =
+                HttpRequest.newBuilder(URI.create(baseUrl + path))
+                        .timeout(Duration.ofSeconds(SurveyDriver.TIME_OUT_SECONDS))
+                        .header("Accept", "application/json");
+        if (sessionId != null) {
+            b.header(SESSION_HEADER, sessionId);
+        }
+        if (!cookies.isEmpty()) {
+            b.header(
+                    "Cookie",
+                    cookies.entrySet().stream()
+                            .map(e -> e.getKey() + "=" + e.getValue())
+                            .collect(Collectors.joining("; ")));
+        }
+        return b;
+    }
+
+    private Map<String, Object> send(HttpRequest.Builder b)
+            throws IOException, InterruptedException {
+        HttpRequest request = b.build();
+        HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+        for (String setCookie : response.headers().allValues("Set-Cookie")) {
+            String pair = setCookie.split(";", 2)[0];
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                cookies.put(pair.substring(0, eq).trim(), pair.substring(eq + 1).trim());
+            }
+        }
+        if (response.statusCode() != 200) {
+            throw new IOException("HTTP status " + response.statusCode() + " for " + request.uri());
+        }
+        String body = response.body();
+        if (body == null || body.isBlank()) {
+            return new LinkedHashMap<>();
+        }
+        return json.toType(body, Json.MAP_TYPE);
+    }
+}
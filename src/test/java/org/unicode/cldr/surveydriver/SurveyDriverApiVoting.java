@@ -0,0 +1,188 @@
+package org.unicode.cldr.surveydriver;
+
+import java.net.http.HttpClient;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulate many vetters voting at the same time, using the Survey Tool API directly instead of a
+ * browser.
+ *
+ * <p>Each simulated vetter logs in with its own credentials and repeats the same sequence of
+ * operations as SurveyDriver.testFastVotingInner: open the page, abstain in each of the rows, vote
+ * for the winning value in all but the last row, and add a new value in the last row. Without a
+ * browser per vetter, thousands of vetters can be simulated from one machine.
+ */
+public class SurveyDriverApiVoting {
+
+    /** How many times each simulated vetter repeats the sequence of operations */
+    static final int REPETITION_COUNT = 100;
+
+    /** The new value added in the last row, as in SurveyDriver.testFastVotingInner */
+    static final String NEW_VALUE = "Testxyz";
+
+    /**
+     * The simulated vetters start at evenly spaced times during this period, rather than all
+     * logging in at the same instant. The starts are scheduled, rather than each vetter sleeping on
+     * its thread until its start, so that when the vetters share a pool of platform threads,
+     * waiting vetters don't hold threads that started ones could use.
+     */
+    static final long RAMP_UP_MILLISECONDS = 10000;
+
+    private final SurveyDriverApiClient client;
+    private final int userIndex;
+    private final SurveyDriverLatency latency;
+
+    /**
+     * @param http the HttpClient, shared by all simulated vetters
+     * @param userIndex the user index identifying the simulated vetter's credentials
+     * @param latency the histograms in which to record, shared by all simulated vetters
+     */
+    public SurveyDriverApiVoting(HttpClient http, int userIndex, SurveyDriverLatency latency) {
+        this.client = new SurveyDriverApiClient(http, SurveyDriver.BASE_URL);
+        this.userIndex = userIndex;
+        this.latency = latency;
+    }
+
+    /**
+     * Run the given number of simulated vetters, and wait for them to finish. Each vetter has its
+     * own virtual thread if possible; see SurveyDriverExecutors.
+     *
+     * @param vetterCount the number of simulated vetters
+     * @param platformThreadCount the number of threads on which to run them, if virtual threads are
+     *     unavailable
+     * @return true if all the simulated vetters passed, else false
+     */
+    public static boolean test(int vetterCount, int platformThreadCount) {
+        final long startTime = System.currentTimeMillis();
+        SurveyDriverLog.println("Starting " + vetterCount + " API-level simulated vetter(s)");
+        HttpClient http = SurveyDriverApiClient.newHttpClient();
+        SurveyDriverLatency latency = new SurveyDriverLatency();
+        ExecutorService executor =
+                SurveyDriverExecutors.newVetterExecutor(
+                        "api-vetter-", Math.min(vetterCount, platformThreadCount));
+        ScheduledExecutorService starter =
+                Executors.newSingleThreadScheduledExecutor(
+                        r -> new Thread(r, "api-vetter-starter"));
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+        for (int i = 0; i < vetterCount; i++) {
+            long delay = RAMP_UP_MILLISECONDS * i / vetterCount;
+            SurveyDriverApiVoting vetter = new SurveyDriverApiVoting(http, i, latency);
+            CompletableFuture<Boolean> future = new CompletableFuture<>();
+            starter.schedule(
+                    () ->
+                            CompletableFuture.supplyAsync(vetter::run, executor)
+                                    .whenComplete(
+                                            (passed, e) -> {
+                                                if (e != null) {
+                                                    future.completeExceptionally(e);
+                                                } else {
+                                                    future.complete(passed);
+                                                }
+                                            }),
+                    delay,
+                    TimeUnit.MILLISECONDS);
+            futures.add(future);
+        }
+        starter.shutdown(); // the scheduled starts still run
+        int passCount = 0;
+        for (CompletableFuture<Boolean> f : futures) {
+            try {
+                if (f.get()) {
+                    ++passCount;
+                }
+            } catch (ExecutionException e) {
+                SurveyDriverLog.println(e);
+            } catch (InterruptedException e) {
+                SurveyDriverLog.println("Interrupted while waiting for API voting; " + e);
+                Thread.currentThread().interrupt();
+                starter.shutdownNow();
+                executor.shutdownNow();
+                break;
+            }
+        }
+        executor.shutdown();
+        double deltaTime = System.currentTimeMillis() - startTime;
+        latency.report("for " + vetterCount + " API-level vetter(s)");
+        latency.mergeInto(SurveyDriverLatency.getGlobal());
+        String result = (passCount == vetterCount) ? "✅" : "❌";
+        SurveyDriverLog.println(
+                result
+                        + " "
+                        + passCount
+                        + " of "
+                        + vetterCount
+                        + " API-level vetter(s) passed in "
+                        + deltaTime / 1000.0
+                        + " sec");
+        return passCount == vetterCount;
+    }
+
+    /**
+     * Log in and repeat the sequence of operations REPETITION_COUNT times
+     *
+     * @return true for success, false for failure
+     */
+    public boolean run() {
+        try {
+            long startTime = System.nanoTime();
+            client.login(SurveyDriverCredentials.getForUser(userIndex));
+            latency.recordSince("api-login", "*", "*", startTime);
+            for (int i = 0; i < REPETITION_COUNT; i++) {
+                runOnce(SurveyDriver.FAST_VOTING_LOCALE, SurveyDriver.FAST_VOTING_PAGE);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            SurveyDriverLog.println("❌ API voting failed for user " + userIndex + "; " + e);
+            return false;
+        }
+        return true;
+    }
+
+    private void runOnce(String loc, String page) throws Exception {
+        final String[] rowIds = SurveyDriver.FAST_VOTING_ROW_IDS;
+        long startTime = System.nanoTime();
+        Map<String, Object> pageJson = client.getPage(loc, page);
+        latency.recordSince("api-page", loc, page, startTime);
+        for (String xpstrid : rowIds) {
+            startTime = System.nanoTime();
+            client.vote(loc, xpstrid, null);
+            latency.recordSince("api-abstain", loc, page, startTime);
+        }
+        for (int i = 0; i < rowIds.length; i++) {
+            boolean doAdd = (i == rowIds.length - 1);
+            String value = doAdd ? NEW_VALUE : getWinningValue(pageJson, rowIds[i]);
+            if (value == null) {
+                SurveyDriverLog.println("No winning value for " + rowIds[i] + " in " + loc);
+                continue;
+            }
+            startTime = System.nanoTime();
+            client.vote(loc, rowIds[i], value);
+            latency.recordSince(doAdd ? "api-add" : "api-vote", loc, page, startTime);
+        }
+    }
+
+    /**
+     * Get the winning value for the given row from the page data
+     *
+     * @param pageJson the response from SurveyDriverApiClient.getPage
+     * @param xpstrid the id of the row
+     * @return the winning value, or null if not found
+     */
+    private static String getWinningValue(Map<String, Object> pageJson, String xpstrid) {
+        Object p = pageJson.get("page");
+        Object rows = (p instanceof Map) ? ((Map<?, ?>) p).get("rows") : null;
+        Object row = (rows instanceof Map) ? ((Map<?, ?>) rows).get(xpstrid) : null;
+        Object value = (row instanceof Map) ? ((Map<?, ?>) row).get("winningValue") : null;
+        return (value == null) ? null : value.toString();
+    }
+}
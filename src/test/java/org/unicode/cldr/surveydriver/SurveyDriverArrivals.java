@@ -0,0 +1,115 @@
+package org.unicode.cldr.surveydriver;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A schedule of arrivals (operation start times) for an open-loop load test, described by a rate in
+ * operations per second that may vary with time.
+ *
+ * <p>By default, arrivals are evenly spaced at the current rate. Randomized arrivals have
+ * exponentially distributed gaps with the same mean, that is, a Poisson process.
+ */
+public abstract class SurveyDriverArrivals {
+
+    private boolean randomized = false;
+    private final Random random = new Random();
+
+    /**
+     * Get the target rate at the given time
+     *
+     * @param elapsedSeconds the time since the start of the test
+     * @return the rate, in operations per second
+     */
+    public abstract double rateAt(double elapsedSeconds);
+
+    /**
+     * A constant rate, evenly spaced
+     *
+     * @param rate operations per second
+     * @return the schedule
+     */
+    public static SurveyDriverArrivals constant(double rate) {
+        return new SurveyDriverArrivals() {
+            @Override
+            public double rateAt(double elapsedSeconds) {
+                return rate;
+            }
+        };
+    }
+
+    /**
+     * A constant mean rate with exponentially distributed gaps
+     *
+     * @param rate operations per second
+     * @return the schedule
+     */
+    public static SurveyDriverArrivals poisson(double rate) {
+        return constant(rate).randomized();
+    }
+
+    /**
+     * A rate that increases by the same amount at regular intervals
+     *
+     * @param startRate the rate at the beginning, in operations per second
+     * @param stepRate the increase at each step, in operations per second
+     * @param stepSeconds the duration of each step
+     * @return the schedule
+     */
+    public static SurveyDriverArrivals step(double startRate, double stepRate, long stepSeconds) {
+        return new SurveyDriverArrivals() {
+            @Override
+            public double rateAt(double elapsedSeconds) {
+                return startRate + stepRate * Math.floor(elapsedSeconds / stepSeconds);
+            }
+        };
+    }
+
+    /**
+     * A rate that changes linearly, and then stays constant
+     *
+     * @param fromRate the rate at the beginning, in operations per second
+     * @param toRate the rate at the end of the ramp, in operations per second
+     * @param rampSeconds the duration of the ramp
+     * @return the schedule
+     */
+    public static SurveyDriverArrivals ramp(double fromRate, double toRate, long rampSeconds) {
+        return new SurveyDriverArrivals() {
+            @Override
+            public double rateAt(double elapsedSeconds) {
+                double fraction = Math.min(1.0, elapsedSeconds / rampSeconds);
+                return fromRate + (toRate - fromRate) * fraction;
+            }
+        };
+    }
+
+    /**
+     * Make the gaps between arrivals exponentially distributed, keeping the same rate
+     *
+     * @return this schedule
+     */
+    public SurveyDriverArrivals randomized() {
+        randomized = true;
+        return this;
+    }
+
+    /**
+     * Get the time from one arrival to the next
+     *
+     * @param elapsedNanos the time of the current arrival, since the start of the test
+     * @return the gap in nanoseconds, or -1 if the rate is zero or negative at this time
+     */
+    public long nextGapNanos(long elapsedNanos) {
+        double rate = rateAt(elapsedNanos / 1e9);
+        if (rate <= 0) {
+            return -1;
+        }
+        double meanNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        if (!randomized) {
+            return Math.round(meanNanos);
+        }
+        synchronized (random) {
+            return Math.round(-meanNanos * Math.log(1.0 - random.nextDouble()));
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package org.unicode.cldr.surveydriver;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks for the parts of the driver that run in this JVM rather than in the browser or the
+ * server, so that a slower harness can't go unnoticed and distort the latencies it measures.
+ *
+ * <p>Run with: mvn -P benchmarks test (optionally -Djmh.args="normalizeTable -prof gc"). The
+ * vetting table is read from data/table0.txt, so run from the project directory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SurveyDriverBenchmarks {
+
+    /** The number of slots in the simulated grid status, as for a grid of several nodes */
+    private static final int GRID_NODE_COUNT = 4;
+
+    private static final int GRID_SLOTS_PER_NODE = 16;
+
+    /**
+     * The number of copies of the small table in the simulated large table, making it the size of a
+     * page like Languages_A_D
+     */
+    private static final int LARGE_TABLE_COPIES = 100;
+
+    /** The number of entries in the simulated HAR file */
+    private static final int HAR_ENTRY_COUNT = 1000;
+
+    private String tableHtml;
+    private String largeTableHtml;
+    private SurveyDriverTableNormalizer normalizer;
+    private SurveyDriverTableDiff.Table expectedTable;
+    private String changedTableHtml;
+    private SurveyDriverLogScanner.Automaton automaton;
+    private String[] logMessages;
+    private boolean[] found;
+    private String gridStatus;
+    private String gridSessionId;
+    private String har;
+    private SurveyDriverLatency latency;
+    private long latencyValue = 0;
+
+    @Setup
+    public void setUp() throws IOException {
+        tableHtml = Files.readString(Paths.get("data", "table0.txt"));
+        normalizer = SurveyDriverTableNormalizer.getVettingTable();
+        /*
+         * Include the classes that the normalizer removes or changes, which vary at random
+         */
+        String variantHtml =
+                tableHtml
+                        .replace("cov40", "cov40 hideCov80 fallback_root")
+                        .replace("btn btn-default", "pu-select btn btn-default");
+        largeTableHtml = variantHtml.repeat(LARGE_TABLE_COPIES);
+        String normalizedHtml = normalizer.normalize(largeTableHtml);
+        expectedTable = SurveyDriverTableDiff.Table.parse(normalizedHtml);
+        int lastVote = normalizedHtml.lastIndexOf("ichoice-o");
+        changedTableHtml =
+                normalizedHtml.substring(0, lastVote)
+                        + "ichoice-x"
+                        + normalizedHtml.substring(lastVote + "ichoice-o".length());
+
+        automaton = new SurveyDriverLogScanner.Automaton(SurveyDriverLogScanner.SIGNATURES);
+        found = new boolean[automaton.size()];
+        /*
+         * Typical browser log entries, including the whole table, which is logged by the
+         * testTable function of SurveyDriverTableWatcher
+         */
+        logMessages =
+                new String[] {
+                    SurveyDriver.BASE_URL
+                            + "js/cldrTable.mjs 412:16 \"insertRows: recreating"
+                            + " table from scratch\"",
+                    SurveyDriver.BASE_URL
+                            + "js/cldrLoad.mjs 120:10 \"Loading Languages_A_D for sr\"",
+                    SurveyDriver.BASE_URL
+                            + "js/cldrVote.mjs 88:12 \"handleWiredClick: row_f3d4397b739b287\"",
+                    "console-api 2:32 " + tableHtml,
+                    SurveyDriver.BASE_URL
+                            + "js/cldrStatus.mjs 301:14 \"Server status: busy, 3 requests\"",
+                };
+
+        StringBuilder sb = new StringBuilder("{\"value\": {\"ready\": true, \"nodes\": [");
+        for (int n = 0; n < GRID_NODE_COUNT; n++) {
+            sb.append(n == 0 ? "" : ", ")
+                    .append("{\"id\": \"node-")
+                    .append(n)
+                    .append("\", \"availability\": \"UP\", \"slots\": [");
+            for (int i = 0; i < GRID_SLOTS_PER_NODE; i++) {
+                gridSessionId = String.format("%032x", n * GRID_SLOTS_PER_NODE + i);
+                sb.append(i == 0 ? "" : ", ")
+                        .append("{\"id\": {\"hostId\": \"node-")
+                        .append(n)
+                        .append("\", \"id\": \"slot-")
+                        .append(i)
+                        .append("\"}, \"lastStarted\": \"2024-01-01T00:00:00Z\",")
+                        .append(" \"stereotype\": {\"browserName\": \"chrome\"},")
+                        .append(" \"session\": {\"sessionId\": \"")
+                        .append(gridSessionId)
+                        .append("\", \"capabilities\": {\"browserName\": \"chrome\"}}}");
+            }
+            sb.append("]}");
+        }
+        gridStatus = sb.append("]}}").toString();
+
+        sb = new StringBuilder("{\"log\": {\"version\": \"1.2\", \"entries\": [");
+        String[] paths = {
+            "api/voting/sr/row/f3d4397b739b287",
+            "api/voting/sr/page/Languages_A_D",
+            "api/summary/dashboard/sr/comprehensive",
+            "js/cldrTable.mjs"
+        };
+        for (int i = 0; i < HAR_ENTRY_COUNT; i++) {
+            String path = paths[i % paths.length];
+            boolean post = path.contains("/row/");
+            sb.append(i == 0 ? "" : ",")
+                    .append("{\"startedDateTime\": \"2024-01-01T00:00:")
+                    .append(String.format("%02d", i % 60))
+                    .append(".000Z\", \"time\": ")
+                    .append(20 + i % 300)
+                    .append(", \"request\": {\"method\": \"")
+                    .append(post ? "POST" : "GET")
+                    .append("\", \"url\": \"")
+                    .append(SurveyDriver.BASE_URL)
+                    .append(path)
+                    .append("\", \"headers\": []")
+                    .append(
+                            post
+                                    ? ", \"postData\": {\"text\": \"{\\\"value\\\": \\\"x\\\"}\"}"
+                                    : "")
+                    .append("}, \"response\": {\"status\": 200, \"content\": {\"size\": ")
+                    .append(1000 + i)
+                    .append("}}, \"timings\": {\"wait\": 10}}");
+        }
+        har = sb.append("]}}").toString();
+
+        latency = new SurveyDriverLatency();
+    }
+
+    @Benchmark
+    public String normalizeTable() {
+        return normalizer.normalize(largeTableHtml);
+    }
+
+    /** The normalization formerly done by SurveyDriverVettingTable, for comparison */
+    @Benchmark
+    public String normalizeTableWithReplace() {
+        return largeTableHtml
+                .replace("fallback_root", "fallback")
+                .replaceFirst("<tbody>\\s*<tr", "<tbody><tr")
+                .replace(" hideCov80", "")
+                .replace(" hideCov100", "")
+                .replace("pu-select ", "")
+                .trim();
+    }
+
+    /** Compare a large table with one in which one cell has changed */
+    @Benchmark
+    public SurveyDriverTableDiff diffTable() {
+        return new SurveyDriverTableDiff(
+                expectedTable, SurveyDriverTableDiff.Table.parse(changedTableHtml));
+    }
+
+    @Benchmark
+    public int scanLogMessages() {
+        int count = 0;
+        for (String message : logMessages) {
+            Arrays.fill(found, false);
+            count += automaton.match(message, found);
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int parseGridStatus() {
+        return SurveyDriverGrid.findSlotIndex(gridStatus, gridSessionId);
+    }
+
+    @Benchmark
+    public SurveyDriverHarAnalyzer filterHarEntries() {
+        SurveyDriverHarAnalyzer analyzer =
+                new SurveyDriverHarAnalyzer(SurveyDriverHarAnalyzer.FILTER_REGEX, null, null, null);
+        analyzer.read(new StringReader(har));
+        return analyzer;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void recordLatency() {
+        latencyValue = (latencyValue + 7919) % 1_000_000;
+        latency.recordMicros(SurveyDriverLatency.key("vote", "sr", "Languages_A_D"), latencyValue);
+    }
+}
@@ -0,0 +1,145 @@
+package org.unicode.cldr.surveydriver;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import org.openqa.selenium.JavascriptException;
+import org.openqa.selenium.devtools.DevTools;
+import org.openqa.selenium.devtools.events.ConsoleEvent;
+
+/**
+ * Capture the browser console as it happens, by subscribing to console and JavaScript exception
+ * events through the Chrome DevTools Protocol, instead of polling the browser log.
+ *
+ * <p>Each entry is timestamped by the browser, kept in a bounded ring buffer (the oldest entries
+ * are dropped when it is full), and passed to the SurveyDriverLogScanner, which then no longer
+ * needs to poll. If DevTools is not available, the scanner keeps polling.
+ */
+public class SurveyDriverConsole {
+
+    /** One console message or uncaught exception */
+    static class Entry {
+        final Instant time;
+        final String type;
+        final String message;
+
+        Entry(Instant time, String type, String message) {
+            this.time = time;
+            this.type = type;
+            this.message = message;
+        }
+
+        @Override
+        public String toString() {
+            return time + " [" + type + "] " + message;
+        }
+    }
+
+    private final SurveyDriverLogScanner scanner;
+    private final int capacity;
+    private final ArrayDeque<Entry> buffer = new ArrayDeque<>();
+    private long droppedCount = 0;
+    private DevTools devTools = null;
+
+    /**
+     * @param scanner the scanner to receive each entry, or null
+     * @param capacity the maximum number of entries to keep
+     */
+    public SurveyDriverConsole(SurveyDriverLogScanner scanner, int capacity) {
+        this.scanner = scanner;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Subscribe to the console and exception events
+     *
+     * @param devTools the DevTools connection for the session, or null if not available
+     * @return true if subscribed, else false
+     */
+    public boolean start(DevTools devTools) {
+        if (devTools == null) {
+            return false;
+        }
+        try {
+            devTools.getDomains().events().addConsoleListener(this::onConsole);
+            devTools.getDomains().events().addJavascriptExceptionListener(this::onException);
+        } catch (Exception e) {
+            SurveyDriverLog.println("Console capture unavailable; polling logs; " + e);
+            return false;
+        }
+        this.devTools = devTools;
+        if (scanner != null) {
+            scanner.setPushed(true);
+        }
+        return true;
+    }
+
+    private void onConsole(ConsoleEvent event) {
+        add(
+                new Entry(
+                        event.getTimestamp(),
+                        event.getType(),
+                        String.join(" ", event.getMessages())));
+    }
+
+    private void onException(JavascriptException e) {
+        add(new Entry(Instant.now(), "exception", e.getMessage()));
+    }
+
+    private void add(Entry entry) {
+        synchronized (buffer) {
+            if (buffer.size() >= capacity) {
+                buffer.removeFirst();
+                ++droppedCount;
+            }
+            buffer.addLast(entry);
+        }
+        if (scanner != null) {
+            scanner.accept(entry.message, entry.toString());
+        }
+    }
+
+    /**
+     * @return a copy of the entries currently in the buffer, oldest first
+     */
+    public List<Entry> getEntries() {
+        synchronized (buffer) {
+            return new ArrayList<>(buffer);
+        }
+    }
+
+    /**
+     * Log the most recent entries, for example after a test fails
+     *
+     * @param count the maximum number of entries to log
+     */
+    public void printRecent(int count) {
+        List<Entry> entries = getEntries();
+        int from = Math.max(0, entries.size() - count);
+        synchronized (buffer) {
+            if (droppedCount > 0) {
+                SurveyDriverLog.println("(" + droppedCount + " older console entries dropped)");
+            }
+        }
+        for (Entry entry : entries.subList(from, entries.size())) {
+            SurveyDriverLog.println("console: " + entry);
+        }
+    }
+
+    /** Unsubscribe; the DevTools connection itself belongs to the caller */
+    public void stop() {
+        if (devTools == null) {
+            return;
+        }
+        if (scanner != null) {
+            scanner.setPushed(false);
+        }
+        try {
+            devTools.getDomains().events().disable();
+        } catch (Exception e) {
+            SurveyDriverLog.println(e);
+        }
+        devTools = null;
+    }
+}
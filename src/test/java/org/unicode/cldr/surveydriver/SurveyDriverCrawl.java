@@ -0,0 +1,341 @@
+package org.unicode.cldr.surveydriver;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.openqa.selenium.NoSuchSessionException;
+
+/**
+ * Test every combination of locale and page, shared among several browser sessions.
+ *
+ * <p>The (locale, page) units are divided into one contiguous run per session, so that each session
+ * mostly stays with the same locale. A session takes units from the front of its own run; when its
+ * run is empty, it steals units from the back of another session's run, so that all the sessions
+ * keep busy until the whole crawl is done, even if some pages are much slower than others. If a
+ * session is lost, its worker carries on with a new one, up to MAX_LOST_SESSIONS times.
+ *
+ * <p>Unlike the former serial version, a failure does not stop the crawl; all failures are reported
+ * at the end, along with the slowest units.
+ *
+ * <p>If SurveyDriver.USE_CRAWL_JOURNAL is true, completed units are recorded in a
+ * SurveyDriverCrawlJournal, so that if the crawl is interrupted, the next run skips the units that
+ * already passed. When a crawl finishes with every unit passed, the journal is deleted.
+ */
+public class SurveyDriverCrawl {
+
+    /** How many of the slowest units to report */
+    static final int SLOWEST_REPORT_COUNT = 20;
+
+    /**
+     * How many times a crawl session may be lost (for example if its browser crashes) and replaced
+     * with a new one before its worker gives up
+     */
+    static final int MAX_LOST_SESSIONS = 3;
+
+    /** The journal for testAllLocalesAndPages, if SurveyDriver.USE_CRAWL_JOURNAL is true */
+    static final Path JOURNAL_PATH = Paths.get("target", "surveydriver", "crawl-journal.tsv");
+
+    /** One locale and page to be tested */
+    static class Unit {
+        final String loc;
+        final String page;
+
+        Unit(String loc, String page) {
+            this.loc = loc;
+            this.page = page;
+        }
+
+        @Override
+        public String toString() {
+            return loc + "/" + page;
+        }
+    }
+
+    /** The outcome of testing one unit */
+    static class Result {
+        final Unit unit;
+        final boolean passed;
+        final long nanos;
+
+        Result(Unit unit, boolean passed, long nanos) {
+            this.unit = unit;
+            this.passed = passed;
+            this.nanos = nanos;
+        }
+    }
+
+    private final String searchString;
+    private final SurveyDriverCrawlJournal journal;
+    private int skippedCount = 0;
+    private final List<ConcurrentLinkedDeque<Unit>> queues = new ArrayList<>();
+    private final Queue<Result> results = new ConcurrentLinkedQueue<>();
+    private final SurveyDriverLatency latency = new SurveyDriverLatency();
+    private final AtomicInteger stealCount = new AtomicInteger();
+    private final int unitCount;
+
+    /**
+     * @param locales the locales
+     * @param pages the pages to test in each locale
+     * @param searchString the string whose occurrence in the browser log means failure
+     * @param sessionCount the number of browser sessions
+     * @param journal the journal of completed units, or null
+     */
+    public SurveyDriverCrawl(
+            String[] locales,
+            String[] pages,
+            String searchString,
+            int sessionCount,
+            SurveyDriverCrawlJournal journal) {
+        this.searchString = searchString;
+        this.journal = journal;
+        List<Unit> units = new ArrayList<>();
+        for (String loc : locales) {
+            for (String page : pages) {
+                if (journal != null && journal.hasPassed(loc, page)) {
+                    ++skippedCount;
+                } else {
+                    units.add(new Unit(loc, page));
+                }
+            }
+        }
+        this.unitCount = units.size();
+        for (int i = 0; i < sessionCount; i++) {
+            int from = (int) ((long) unitCount * i / sessionCount);
+            int to = (int) ((long) unitCount * (i + 1) / sessionCount);
+            queues.add(new ConcurrentLinkedDeque<>(units.subList(from, to)));
+        }
+    }
+
+    /**
+     * Test all the locales and pages we're interested in
+     *
+     * @param sessionCount the number of browser sessions
+     * @return true if every unit passed, else false
+     */
+    public static boolean testAllLocalesAndPages(int sessionCount) {
+        /*
+         * Reference: https://unicode.org/cldr/trac/ticket/11238 "browser console shows error message,
+         * there is INHERITANCE_MARKER without inheritedValue"
+         */
+        String searchString =
+                "INHERITANCE_MARKER without inheritedValue"; // formerly, "there is no Bailey Target
+        // item"
+        SurveyDriverCrawlJournal journal = null;
+        if (SurveyDriver.USE_CRAWL_JOURNAL) {
+            try {
+                journal = new SurveyDriverCrawlJournal(JOURNAL_PATH);
+            } catch (IOException e) {
+                SurveyDriverLog.println("Unable to open crawl journal " + JOURNAL_PATH + "; " + e);
+                return false;
+            }
+        }
+        boolean ok =
+                new SurveyDriverCrawl(
+                                SurveyDriverData.getLocales(),
+                                SurveyDriverData.getPages(),
+                                searchString,
+                                sessionCount,
+                                journal)
+                        .run();
+        if (journal != null) {
+            try {
+                if (ok) {
+                    journal.delete();
+                } else {
+                    journal.close();
+                    SurveyDriverLog.println("Crawl journal kept for the next run: " + JOURNAL_PATH);
+                }
+            } catch (IOException e) {
+                SurveyDriverLog.println(e);
+            }
+        }
+        return ok;
+    }
+
+    /**
+     * Run the crawl and wait for it to finish
+     *
+     * @return true if every unit passed, else false
+     */
+    public boolean run() {
+        final long startTime = System.nanoTime();
+        final int sessionCount = queues.size();
+        SurveyDriverLog.println(
+                "Crawling "
+                        + unitCount
+                        + " locale/page units with "
+                        + sessionCount
+                        + " session(s)");
+        final AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor =
+                Executors.newFixedThreadPool(
+                        sessionCount,
+                        r -> new Thread(r, "surveydriver-crawl-" + threadNumber.getAndIncrement()));
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < sessionCount; i++) {
+            final int worker = i;
+            futures.add(executor.submit(() -> crawl(worker)));
+        }
+        executor.shutdown();
+        for (Future<?> f : futures) {
+            try {
+                f.get();
+            } catch (ExecutionException e) {
+                SurveyDriverLog.println(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                executor.shutdownNow();
+                break;
+            }
+        }
+        return report((System.nanoTime() - startTime) / 1e9);
+    }
+
+    /**
+     * Test units in one browser session until there are none left
+     *
+     * @param worker the number of this session, identifying its own run of units
+     */
+    private void crawl(int worker) {
+        SurveyDriver s = newSession();
+        int lostCount = 0;
+        try {
+            Unit unit;
+            while ((unit = take(worker)) != null) {
+                final long unitStart = System.nanoTime();
+                boolean passed;
+                try {
+                    passed = s.testOneLocationAndPage(unit.loc, unit.page, searchString);
+                } catch (NoSuchSessionException e) {
+                    /*
+                     * This session is gone; put the unit back and carry on with a new session, so
+                     * that neither the unit nor the rest of this run is left untested if the other
+                     * sessions have already finished
+                     */
+                    SurveyDriverLog.println("Crawl session " + worker + " lost; " + e);
+                    queues.get(worker).addFirst(unit);
+                    SurveyDriver lost = s;
+                    s = null;
+                    endSession(lost, false);
+                    if (++lostCount > MAX_LOST_SESSIONS) {
+                        SurveyDriverLog.println(
+                                "❌ Crawl session "
+                                        + worker
+                                        + " giving up after losing "
+                                        + lostCount
+                                        + " sessions");
+                        return;
+                    }
+                    s = newSession();
+                    continue;
+                } catch (Exception e) {
+                    SurveyDriverLog.println(e);
+                    passed = false;
+                }
+                long nanos = System.nanoTime() - unitStart;
+                results.add(new Result(unit, passed, nanos));
+                if (journal != null) {
+                    journal.record(
+                            unit.loc, unit.page, passed, TimeUnit.NANOSECONDS.toMillis(nanos));
+                }
+                latency.recordNanos(SurveyDriverLatency.key("crawl", "*", unit.page), nanos);
+            }
+        } finally {
+            if (s != null) {
+                endSession(s, true);
+            }
+        }
+    }
+
+    private static SurveyDriver newSession() {
+        if (SurveyDriver.USE_SESSION_POOL) {
+            return SurveyDriverSessionPool.getGlobal().borrow(SurveyDriverSessionPool.ANY_USER);
+        }
+        SurveyDriver s = new SurveyDriver();
+        s.setUp();
+        return s;
+    }
+
+    private static void endSession(SurveyDriver s, boolean reusable) {
+        if (SurveyDriver.USE_SESSION_POOL) {
+            SurveyDriverSessionPool.getGlobal().giveBack(s, reusable);
+        } else {
+            s.tearDown();
+        }
+    }
+
+    /**
+     * Get the next unit for the given session: from the front of its own run if possible, otherwise
+     * from the back of another session's run
+     *
+     * @param worker the number of the session
+     * @return the unit, or null if there are no units left anywhere
+     */
+    private Unit take(int worker) {
+        Unit unit = queues.get(worker).pollFirst();
+        if (unit != null) {
+            return unit;
+        }
+        for (int i = 1; i < queues.size(); i++) {
+            unit = queues.get((worker + i) % queues.size()).pollLast();
+            if (unit != null) {
+                stealCount.incrementAndGet();
+                return unit;
+            }
+        }
+        return null;
+    }
+
+    private boolean report(double seconds) {
+        List<Result> all = new ArrayList<>(results);
+        List<Result> failures = all.stream().filter(r -> !r.passed).collect(Collectors.toList());
+        latency.report("for crawl, by page");
+        latency.mergeInto(SurveyDriverLatency.getGlobal());
+        SurveyDriverLog.println("Slowest locale/page units:");
+        all.stream()
+                .sorted(Comparator.comparingLong((Result r) -> r.nanos).reversed())
+                .limit(SLOWEST_REPORT_COUNT)
+                .forEach(
+                        r ->
+                                SurveyDriverLog.println(
+                                        "  "
+                                                + r.unit
+                                                + " "
+                                                + TimeUnit.NANOSECONDS.toMillis(r.nanos)
+                                                + " ms"));
+        for (Result r : failures) {
+            SurveyDriverLog.println("❌ Crawl failed for " + r.unit);
+        }
+        int untested = unitCount - all.size();
+        boolean ok = failures.isEmpty() && untested == 0;
+        SurveyDriverLog.println(
+                (ok ? "✅" : "❌")
+                        + " Crawl tested "
+                        + all.size()
+                        + " of "
+                        + unitCount
+                        + " units ("
+                        + skippedCount
+                        + " more skipped, already passed), "
+                        + failures.size()
+                        + " failed, "
+                        + stealCount.get()
+                        + " stolen, in "
+                        + seconds
+                        + " sec");
+        return ok;
+    }
+}
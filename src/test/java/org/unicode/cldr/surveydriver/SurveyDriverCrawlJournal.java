@@ -0,0 +1,139 @@
+package org.unicode.cldr.surveydriver;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * An append-only journal of completed crawl units, so that an interrupted crawl can resume where it
+ * left off instead of starting over.
+ *
+ * <p>Each line is "locale TAB page TAB outcome TAB milliseconds", where outcome is "pass" or
+ * "fail". Each line is written with a single write and forced to disk before the next unit is
+ * recorded, so after a crash at most the last line can be incomplete; such a line is ignored and
+ * cut off when the journal is opened again. On a rerun, units that passed are skipped and units
+ * that failed are tested again.
+ */
+public class SurveyDriverCrawlJournal implements AutoCloseable {
+
+    private static final String PASS = "pass";
+    private static final String FAIL = "fail";
+
+    private final Path path;
+    private final Set<String> passed = new HashSet<>();
+    private final FileChannel channel;
+
+    /**
+     * Open the journal, reading any units already recorded
+     *
+     * @param path the journal file, created if it doesn't exist
+     * @throws IOException if the file can't be read or opened for appending
+     */
+    public SurveyDriverCrawlJournal(Path path) throws IOException {
+        this.path = path;
+        long validLength = 0;
+        if (Files.exists(path)) {
+            validLength = load();
+        } else if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.truncate(validLength);
+        channel.position(validLength);
+    }
+
+    /**
+     * Read the journal, remembering the units that passed
+     *
+     * @return the length in bytes of the complete lines
+     */
+    private long load() throws IOException {
+        long validLength = 0;
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            StringBuilder line = new StringBuilder();
+            int c;
+            while ((c = reader.read()) >= 0) {
+                if (c != '\n') {
+                    line.append((char) c);
+                    continue;
+                }
+                String s = line.toString();
+                validLength += s.getBytes(StandardCharsets.UTF_8).length + 1;
+                line.setLength(0);
+                String[] fields = s.split("\t");
+                if (fields.length == 4 && PASS.equals(fields[2])) {
+                    passed.add(key(fields[0], fields[1]));
+                } else if (fields.length == 4 && FAIL.equals(fields[2])) {
+                    passed.remove(key(fields[0], fields[1]));
+                }
+            }
+            if (line.length() > 0) {
+                SurveyDriverLog.println("Ignoring incomplete last line of " + path);
+            }
+        }
+        SurveyDriverLog.println(passed.size() + " unit(s) already passed according to " + path);
+        return validLength;
+    }
+
+    private static String key(String loc, String page) {
+        return loc + "/" + page;
+    }
+
+    /**
+     * @param loc the locale
+     * @param page the page
+     * @return true if the journal shows that this unit passed
+     */
+    public synchronized boolean hasPassed(String loc, String page) {
+        return passed.contains(key(loc, page));
+    }
+
+    /**
+     * Append a completed unit to the journal and force it to disk
+     *
+     * @param loc the locale
+     * @param page the page
+     * @param pass true if the unit passed
+     * @param millis how long the unit took
+     */
+    public synchronized void record(String loc, String page, boolean pass, long millis) {
+        String line = loc + "\t" + page + "\t" + (pass ? PASS : FAIL) + "\t" + millis + "\n";
+        try {
+            ByteBuffer buf = ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8));
+            while (buf.hasRemaining()) {
+                channel.write(buf);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            SurveyDriverLog.println("Unable to write to crawl journal " + path + "; " + e);
+            return;
+        }
+        if (pass) {
+            passed.add(key(loc, page));
+        }
+    }
+
+    /**
+     * Close and delete the journal, so that the next crawl starts from the beginning
+     *
+     * @throws IOException if the file can't be deleted
+     */
+    public synchronized void delete() throws IOException {
+        close();
+        Files.deleteIfExists(path);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel.isOpen()) {
+            channel.close();
+        }
+    }
+}
@@ -12,7 +12,7 @@ public class SurveyDriverDashboard {
         this.driver = s.driver;
     }
 
-    private static final String[] locales = {
+    static final String[] locales = {
         // Czech, German, Spanish, French, Hindi, Japanese, Russian, Chinese
         "cs", "de", "es", "fr", "hi", "ja", "ru", "zh"
     };
@@ -36,14 +36,10 @@ public class SurveyDriverDashboard {
     private boolean testOne(int i) {
         String loc = locales[i % locales.length];
         String url = SurveyDriver.BASE_URL + "v#/" + loc + "//";
+        final long loadStartTime = System.nanoTime();
         driver.get(url);
-        if (!s.hideLeftSidebar(url)) {
-            return false;
-        }
-        if (!s.waitUntilElementInactive("left-sidebar", url)) {
-            return false;
-        }
-        if (!s.waitUntilElementInactive("overlay", url)) {
+        SurveyDriverReadiness readiness = s.newReadiness().sidebarHidden().overlayInactive();
+        if (!s.waitUntilPageReady(readiness, url, loadStartTime, loc, "dashboard")) {
             return false;
         }
         // If we're on a locale's "General Info" page (rather than a specific
@@ -59,6 +55,7 @@ public class SurveyDriverDashboard {
         if (!s.waitUntilIdExists("DashboardScroller", true, url)) {
             return false;
         }
+        s.logPageTiming(loc, loc, "dashboard");
         SurveyDriverLog.println("✅ Dashboard: tested locale " + loc);
         return true;
     }
@@ -0,0 +1,163 @@
+package org.unicode.cldr.surveydriver;
+
+import java.util.Arrays;
+import java.util.Map;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Wait for a condition in the page using a MutationObserver inside the browser, instead of polling
+ * through WebDriverWait.
+ *
+ * <p>A single executeAsyncScript call installs the observer, which re-tests the condition whenever
+ * the DOM changes, and returns as soon as the condition is true or the time runs out. Compared with
+ * polling every SLEEP_MILLISECONDS, this needs one round trip instead of several per poll, and the
+ * wait ends as soon as the condition becomes true, rather than at the next poll.
+ */
+public class SurveyDriverDomWait {
+
+    /*
+     * In addition to DOM mutations, the condition is tested at this interval, inside the browser,
+     * in case it depends on something that changes without a mutation, such as a computed style
+     */
+    private static final long FALLBACK_INTERVAL_MILLISECONDS = 250;
+
+    private static final String SCRIPT_START =
+            "var args = arguments[0], timeoutMs = arguments[1], intervalMs = arguments[2];\n"
+                    + "var done = arguments[arguments.length - 1];\n"
+                    + "var test = function () {\n";
+
+    private static final String SCRIPT_END =
+            "};\n"
+                    + "var safeTest = function () { try { return !!test(); } catch (e) { return false; } };\n"
+                    + "if (safeTest()) { done({ok: true}); return; }\n"
+                    + "var finished = false, observer, interval, timer;\n"
+                    + "var finish = function (ok) {\n"
+                    + "  if (finished) { return; }\n"
+                    + "  finished = true;\n"
+                    + "  observer.disconnect(); clearInterval(interval); clearTimeout(timer);\n"
+                    + "  done({ok: ok});\n"
+                    + "};\n"
+                    + "var check = function () { if (safeTest()) { finish(true); } };\n"
+                    + "observer = new MutationObserver(check);\n"
+                    + "observer.observe(document, {subtree: true, childList: true, attributes: true,\n"
+                    + "    characterData: true});\n"
+                    + "interval = setInterval(check, intervalMs);\n"
+                    + "timer = setTimeout(function () { finish(false); }, timeoutMs);\n";
+
+    /** A condition to wait for: the body of a JavaScript function, and its arguments */
+    public static class Condition {
+        private final String body;
+        private final Object[] args;
+
+        private Condition(String body, Object... args) {
+            this.body = body;
+            this.args = args;
+        }
+    }
+
+    /**
+     * The title contains the given string
+     *
+     * @param s the string expected to occur in the title
+     * @return the condition
+     */
+    public static Condition titleContains(String s) {
+        return new Condition("return document.title.indexOf(args[0]) >= 0;", s);
+    }
+
+    /**
+     * The element with the given id exists and its display style contains "none"
+     *
+     * @param id the id of the element
+     * @return the condition
+     */
+    public static Condition displayNone(String id) {
+        return new Condition(
+                "var el = document.getElementById(args[0]);\n"
+                        + "return el !== null && getComputedStyle(el).display.indexOf('none') >= 0;",
+                id);
+    }
+
+    /**
+     * The element with the given id exists and its class does, or does not, contain "active"
+     *
+     * @param id the id of the element
+     * @param active true for "active", false for not "active"
+     * @return the condition
+     */
+    public static Condition elementActive(String id, boolean active) {
+        return new Condition(
+                "var el = document.getElementById(args[0]);\n"
+                        + "return el !== null\n"
+                        + "    && ((el.getAttribute('class') || '').indexOf('active') >= 0) === args[1];",
+                id,
+                active);
+    }
+
+    /**
+     * At least one element with the given class exists, or no such element exists
+     *
+     * @param className the class name
+     * @param checking true for exists, false for doesn't exist
+     * @return the condition
+     */
+    public static Condition classExists(String className, boolean checking) {
+        return new Condition(
+                "return (document.getElementsByClassName(args[0]).length > 0) === args[1];",
+                className,
+                checking);
+    }
+
+    /**
+     * An element with the given id exists, or no such element exists
+     *
+     * @param id the id
+     * @param checking true for exists, false for doesn't exist
+     * @return the condition
+     */
+    public static Condition idExists(String id, boolean checking) {
+        return new Condition(
+                "return (document.getElementById(args[0]) !== null) === args[1];", id, checking);
+    }
+
+    private final WebDriver driver;
+    private final long timeoutMillis;
+
+    /**
+     * @param driver the driver; its script timeout must be longer than timeoutMillis
+     * @param timeoutMillis how long to wait for a condition before giving up
+     */
+    public SurveyDriverDomWait(WebDriver driver, long timeoutMillis) {
+        this.driver = driver;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Wait until the condition is true.
+     *
+     * @param c the condition
+     * @return TRUE if the condition became true, FALSE if the time ran out, or null if the script
+     *     could not be run (for example, because the page was replaced while waiting), in which
+     *     case the caller should fall back to polling
+     */
+    public Boolean until(Condition c) {
+        Object result;
+        try {
+            result =
+                    ((JavascriptExecutor) driver)
+                            .executeAsyncScript(
+                                    SCRIPT_START + c.body + "\n" + SCRIPT_END,
+                                    Arrays.asList(c.args),
+                                    timeoutMillis,
+                                    FALLBACK_INTERVAL_MILLISECONDS);
+        } catch (Exception e) {
+            SurveyDriverLog.println("DOM wait unavailable, falling back to polling; " + e);
+            return null;
+        }
+        if (!(result instanceof Map)) {
+            return null;
+        }
+        return Boolean.TRUE.equals(((Map<?, ?>) result).get("ok"));
+    }
+}
@@ -0,0 +1,67 @@
+package org.unicode.cldr.surveydriver;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors for simulated vetters.
+ *
+ * <p>On Java 21 or later, each simulated vetter gets its own virtual thread, so that thousands of
+ * vetters blocked in HttpClient.send need only a few carrier threads and a small heap. On older
+ * versions, the vetters share a bounded pool of platform threads. Virtual threads are reached by
+ * reflection, so that this project still compiles for Java 11.
+ */
+public class SurveyDriverExecutors {
+
+    /**
+     * Make an executor that runs each task on its own virtual thread if possible, otherwise on a
+     * fixed pool of platform threads.
+     *
+     * @param namePrefix the prefix for thread names, like "api-vetter-"
+     * @param platformThreadCount the number of platform threads, if virtual threads are unavailable
+     * @return the new executor
+     */
+    public static ExecutorService newVetterExecutor(String namePrefix, int platformThreadCount) {
+        ThreadFactory virtualFactory = getVirtualThreadFactory(namePrefix);
+        if (virtualFactory != null) {
+            try {
+                Method m =
+                        Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+                SurveyDriverLog.println("Using virtual threads for " + namePrefix + "*");
+                return (ExecutorService) m.invoke(null, virtualFactory);
+            } catch (ReflectiveOperationException e) {
+                SurveyDriverLog.println("Unable to make virtual thread executor; " + e);
+            }
+        }
+        SurveyDriverLog.println(
+                "Using " + platformThreadCount + " platform threads for " + namePrefix + "*");
+        final AtomicInteger threadNumber = new AtomicInteger();
+        return Executors.newFixedThreadPool(
+                platformThreadCount,
+                r -> new Thread(r, namePrefix + threadNumber.getAndIncrement()));
+    }
+
+    /**
+     * Get a factory for virtual threads, equivalent to Thread.ofVirtual().name(namePrefix,
+     * 0).factory()
+     *
+     * @param namePrefix the prefix for thread names
+     * @return the factory, or null if virtual threads are unavailable
+     */
+    private static ThreadFactory getVirtualThreadFactory(String namePrefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder =
+                    builderClass
+                            .getMethod("name", String.class, long.class)
+                            .invoke(builder, namePrefix, 0L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
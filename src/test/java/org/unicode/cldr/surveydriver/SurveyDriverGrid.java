@@ -0,0 +1,194 @@
+package org.unicode.cldr.surveydriver;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import org.openqa.selenium.json.Json;
+
+/**
+ * Determine user indexes from the selenium grid, and make sure no two sessions in this JVM use the
+ * same one.
+ *
+ * <p>The grid's /status is fetched with an HttpClient (not with the browser under test) and parsed
+ * as JSON: value.nodes[].slots[], where a slot in use has session.sessionId. The position of our
+ * session's slot among all the slots, counting from zero, is the preferred user index. The
+ * allocator gives the preferred index if no other session has it, otherwise the lowest free index,
+ * so concurrent sessions never log in as the same simulated user. An index is released when its
+ * session is torn down.
+ *
+ * <p>The allocator only prevents collisions among the sessions of one JVM. Sessions in separate
+ * processes are kept apart only by their distinct grid slots; without a slot, the preferred index
+ * is random (see SurveyDriver.getUserIndexFromGrid), so separate processes may still collide.
+ */
+public class SurveyDriverGrid {
+
+    private static final Json json = new Json();
+
+    private static final SurveyDriverGrid global =
+            new SurveyDriverGrid(SurveyDriver.REMOTE_WEBDRIVER_URL);
+
+    private final String gridUrl;
+    private final HttpClient http;
+    private final BitSet inUse = new BitSet();
+
+    /**
+     * @param gridUrl the grid's URL, like "http://localhost:4444"
+     */
+    public SurveyDriverGrid(String gridUrl) {
+        this.gridUrl = gridUrl;
+        this.http =
+                HttpClient.newBuilder()
+                        .connectTimeout(Duration.ofSeconds(SurveyDriver.TIME_OUT_SECONDS))
+                        .build();
+    }
+
+    /**
+     * Get the instance for SurveyDriver.REMOTE_WEBDRIVER_URL, shared by all sessions in this JVM
+     *
+     * @return the global instance
+     */
+    public static SurveyDriverGrid getGlobal() {
+        return global;
+    }
+
+    /**
+     * Get the position of the session's slot in the grid
+     *
+     * @param sessionId the WebDriver session id
+     * @return the slot index, or -1 if it can't be determined
+     */
+    public int getSlotIndex(String sessionId) {
+        String status = getStatus();
+        return (status == null) ? -1 : findSlotIndex(status, sessionId);
+    }
+
+    /**
+     * Get the number of slots in the grid with no session
+     *
+     * @return the number of free slots, or -1 if it can't be determined
+     */
+    public int getFreeSlotCount() {
+        String status = getStatus();
+        return (status == null) ? -1 : countFreeSlots(status);
+    }
+
+    /**
+     * Fetch the grid's /status
+     *
+     * @return the JSON, or null for failure
+     */
+    private String getStatus() {
+        String url = gridUrl + "/status";
+        try {
+            HttpRequest request =
+                    HttpRequest.newBuilder(URI.create(url))
+                            .timeout(Duration.ofSeconds(SurveyDriver.TIME_OUT_SECONDS))
+                            .header("Accept", "application/json")
+                            .GET()
+                            .build();
+            HttpResponse<String> response =
+                    http.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                SurveyDriverLog.println("HTTP status " + response.statusCode() + " for " + url);
+                return null;
+            }
+            return response.body();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (IOException | RuntimeException e) {
+            SurveyDriverLog.println("Unable to get status from " + url + "; " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Find the session's slot in the grid's status
+     *
+     * @param statusJson the JSON returned by the grid's /status
+     * @param sessionId the WebDriver session id
+     * @return the position of the slot among all the slots of all the nodes, or -1 if not found
+     */
+    static int findSlotIndex(String statusJson, String sessionId) {
+        Map<String, Object> status = json.toType(statusJson, Json.MAP_TYPE);
+        int slotIndex = 0;
+        for (Object node : getList(get(status, "value"), "nodes")) {
+            for (Object slot : getList(node, "slots")) {
+                Object session = get(slot, "session");
+                if (session != null && sessionId.equals(get(session, "sessionId"))) {
+                    return slotIndex;
+                }
+                ++slotIndex;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Count the slots in the grid's status that have no session
+     *
+     * @param statusJson the JSON returned by the grid's /status
+     * @return the number of free slots
+     */
+    static int countFreeSlots(String statusJson) {
+        Map<String, Object> status = json.toType(statusJson, Json.MAP_TYPE);
+        int count = 0;
+        for (Object node : getList(get(status, "value"), "nodes")) {
+            for (Object slot : getList(node, "slots")) {
+                if (get(slot, "session") == null) {
+                    ++count;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static Object get(Object map, String key) {
+        return (map instanceof Map) ? ((Map<?, ?>) map).get(key) : null;
+    }
+
+    private static List<?> getList(Object map, String key) {
+        Object list = get(map, key);
+        return (list instanceof List) ? (List<?>) list : List.of();
+    }
+
+    /**
+     * Get a user index that no other session in this JVM is using
+     *
+     * @param preferred the index to use if it is free, or -1 for no preference
+     * @return the index
+     */
+    public synchronized int allocate(int preferred) {
+        int index = (preferred >= 0 && !inUse.get(preferred)) ? preferred : inUse.nextClearBit(0);
+        inUse.set(index);
+        return index;
+    }
+
+    /**
+     * Note that a user index chosen by the caller is in use, so that allocate won't give it to
+     * another session
+     *
+     * @param index the index
+     * @return true if it was free, false if another session already has it
+     */
+    public synchronized boolean reserve(int index) {
+        boolean wasFree = !inUse.get(index);
+        inUse.set(index);
+        return wasFree;
+    }
+
+    /**
+     * Make a user index available again, when its session is finished
+     *
+     * @param index the index
+     */
+    public synchronized void release(int index) {
+        inUse.clear(index);
+    }
+}
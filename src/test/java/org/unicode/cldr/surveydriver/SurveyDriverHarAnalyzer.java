@@ -0,0 +1,388 @@
+package org.unicode.cldr.surveydriver;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import org.HdrHistogram.Histogram;
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.json.JsonInput;
+import org.openqa.selenium.json.JsonType;
+
+/**
+ * Analyze a HAR (HTTP Archive) file, such as one saved from the browser's developer tools during a
+ * load test, or one written by SurveyDriverHarRecorder.
+ *
+ * <p>Run with three args: the HAR file name, the start time, and the end time. For example:
+ *
+ * <p>mvn -q test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=org.unicode.cldr.surveydriver.SurveyDriverHarAnalyzer
+ * -Dexec.args="../HAR/2024-01-12-a.har 2024-01-12T17:15:55Z 2024-01-12T17:18:55Z" >
+ * ../HAR/2024-01-12-a.html
+ *
+ * <p>Only entries whose URL matches FILTER_REGEX and whose start time is within the given times are
+ * included. The summary (per-endpoint percentiles of time and size, and throughput per second) is
+ * written to stderr; detailed HTML, with one table row per entry, is written to stdout.
+ *
+ * <p>The file is parsed as a stream, one entry at a time, and each entry is written out and added
+ * to fixed-size histograms as soon as it is read, so the memory needed doesn't depend on the size
+ * of the file. (This replaces scripts/cldrHarStats.mjs, which read the whole file into memory.)
+ */
+public class SurveyDriverHarAnalyzer {
+
+    static final String URL_PREFIX = SurveyDriver.BASE_URL;
+    static final String FILTER_REGEX = "api/voting/[a-zA-Z_]+/row";
+
+    private static final long HIGHEST_TRACKABLE_MICROSECONDS = TimeUnit.MINUTES.toMicros(10);
+    private static final long HIGHEST_TRACKABLE_BYTES = 1L << 32;
+    private static final int SIGNIFICANT_VALUE_DIGITS = 3;
+
+    /**
+     * Replacements that turn a URL (minus URL_PREFIX) into an endpoint name, so that, for example,
+     * votes for different locales and rows are counted together as "api/voting/{loc}/row/{id}"
+     */
+    private static final Pattern[] ENDPOINT_PATTERNS = {
+        Pattern.compile("[?#].*$"),
+        Pattern.compile("(api/voting/)[^/]+"),
+        Pattern.compile("(api/summary/dashboard/)[^/]+"),
+        Pattern.compile("/[0-9a-f]{8,}(?=/|$)"),
+    };
+
+    private static final String[] ENDPOINT_REPLACEMENTS = {"", "$1{loc}", "$1{loc}", "/{id}"};
+
+    /** One request and response */
+    static class Entry {
+        String startedDateTime = "";
+        double time = 0;
+        String method = "";
+        String url = "";
+        String postData = "";
+        long size = 0;
+    }
+
+    /** Statistics for one endpoint */
+    private static class EndpointStats {
+        final Histogram micros =
+                new Histogram(HIGHEST_TRACKABLE_MICROSECONDS, SIGNIFICANT_VALUE_DIGITS);
+        final Histogram bytes = new Histogram(HIGHEST_TRACKABLE_BYTES, SIGNIFICANT_VALUE_DIGITS);
+    }
+
+    private final Pattern filter;
+    private final String startTimeStamp;
+    private final String endTimeStamp;
+    private final PrintStream html;
+
+    private long allCount = 0;
+    private long filteredCount = 0;
+    private double postTime = 0, getTime = 0;
+    private long postCount = 0, getCount = 0;
+    private final Map<String, EndpointStats> endpoints = new TreeMap<>();
+
+    /** For each second (since the epoch), the number of entries started during that second */
+    private final TreeMap<Long, Long> countPerSecond = new TreeMap<>();
+
+    /**
+     * @param filterRegex only entries whose URLs contain a match are included, or null for all
+     * @param startTimeStamp only entries started at or after this time are included, or null
+     * @param endTimeStamp only entries started before this time are included, or null
+     * @param html where to write the HTML table, or null for none
+     */
+    public SurveyDriverHarAnalyzer(
+            String filterRegex, String startTimeStamp, String endTimeStamp, PrintStream html) {
+        this.filter = filterRegex == null ? null : Pattern.compile(filterRegex);
+        this.startTimeStamp = startTimeStamp;
+        this.endTimeStamp = endTimeStamp;
+        this.html = html;
+        if (html != null) {
+            writeHtmlThruTableStart();
+            writeHtmlTableRow(
+                    true,
+                    "request",
+                    "start",
+                    "ms",
+                    "size",
+                    "method",
+                    "URL",
+                    "POST data (if applicable)");
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("Usage: SurveyDriverHarAnalyzer harFileName startTime endTime");
+            System.exit(1);
+        }
+        SurveyDriverHarAnalyzer analyzer =
+                new SurveyDriverHarAnalyzer(FILTER_REGEX, args[1], args[2], System.out);
+        try (Reader reader = Files.newBufferedReader(Paths.get(args[0]), StandardCharsets.UTF_8)) {
+            analyzer.read(reader);
+        }
+        analyzer.finish(System.err::println);
+    }
+
+    /**
+     * Read a HAR file, adding each of its entries
+     *
+     * @param reader the HAR file
+     */
+    public void read(Reader reader) {
+        try (JsonInput in = new Json().newInput(reader)) {
+            in.beginObject();
+            while (in.hasNext()) {
+                if ("log".equals(in.nextName())) {
+                    readLog(in);
+                } else {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+        }
+    }
+
+    private void readLog(JsonInput in) {
+        in.beginObject();
+        while (in.hasNext()) {
+            if ("entries".equals(in.nextName())) {
+                in.beginArray();
+                while (in.hasNext()) {
+                    add(readEntry(in));
+                }
+                in.endArray();
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+    }
+
+    private static Entry readEntry(JsonInput in) {
+        Entry entry = new Entry();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonType.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "startedDateTime":
+                    entry.startedDateTime = in.nextString();
+                    break;
+                case "time":
+                    entry.time = in.nextNumber().doubleValue();
+                    break;
+                case "request":
+                    readRequest(in, entry);
+                    break;
+                case "response":
+                    readResponse(in, entry);
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return entry;
+    }
+
+    private static void readRequest(JsonInput in, Entry entry) {
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if ("method".equals(name) && in.peek() == JsonType.STRING) {
+                entry.method = in.nextString();
+            } else if ("url".equals(name) && in.peek() == JsonType.STRING) {
+                entry.url = in.nextString();
+            } else if ("postData".equals(name) && in.peek() == JsonType.START_MAP) {
+                in.beginObject();
+                while (in.hasNext()) {
+                    if ("text".equals(in.nextName()) && in.peek() == JsonType.STRING) {
+                        entry.postData = in.nextString();
+                    } else {
+                        in.skipValue();
+                    }
+                }
+                in.endObject();
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+    }
+
+    private static void readResponse(JsonInput in, Entry entry) {
+        in.beginObject();
+        while (in.hasNext()) {
+            if ("content".equals(in.nextName()) && in.peek() == JsonType.START_MAP) {
+                in.beginObject();
+                while (in.hasNext()) {
+                    if ("size".equals(in.nextName()) && in.peek() == JsonType.NUMBER) {
+                        entry.size = in.nextNumber().longValue();
+                    } else {
+                        in.skipValue();
+                    }
+                }
+                in.endObject();
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+    }
+
+    /**
+     * Add one entry, if it passes the filter and time window
+     *
+     * @param entry the entry
+     */
+    public synchronized void add(Entry entry) {
+        ++allCount;
+        if ((startTimeStamp != null && entry.startedDateTime.compareTo(startTimeStamp) < 0)
+                || (endTimeStamp != null && entry.startedDateTime.compareTo(endTimeStamp) >= 0)
+                || (filter != null && !filter.matcher(entry.url).find())) {
+            return;
+        }
+        ++filteredCount;
+        String url = entry.url;
+        if (url.startsWith(URL_PREFIX)) {
+            url = url.substring(URL_PREFIX.length());
+        }
+        if ("POST".equals(entry.method)) {
+            postCount++;
+            postTime += entry.time;
+        } else {
+            getCount++;
+            getTime += entry.time;
+        }
+        EndpointStats stats =
+                endpoints.computeIfAbsent(
+                        entry.method + " " + endpointOf(url), k -> new EndpointStats());
+        stats.micros.recordValue(
+                Math.min(
+                        HIGHEST_TRACKABLE_MICROSECONDS,
+                        Math.max(0, Math.round(entry.time * 1000))));
+        stats.bytes.recordValue(Math.min(HIGHEST_TRACKABLE_BYTES, Math.max(0, entry.size)));
+        try {
+            long second = OffsetDateTime.parse(entry.startedDateTime).toEpochSecond();
+            countPerSecond.merge(second, 1L, Long::sum);
+        } catch (DateTimeParseException e) {
+            // not counted for throughput
+        }
+        if (html != null) {
+            writeHtmlTableRow(
+                    false,
+                    Long.toString(filteredCount),
+                    entry.startedDateTime,
+                    Long.toString(Math.round(entry.time)),
+                    Math.round(entry.size / 1000.0) + "k",
+                    entry.method,
+                    url,
+                    "POST".equals(entry.method) ? entry.postData : "");
+        }
+    }
+
+    /**
+     * Get the endpoint name for a URL
+     *
+     * @param url the URL, without URL_PREFIX
+     * @return the endpoint, like "api/voting/{loc}/row/{id}"
+     */
+    static String endpointOf(String url) {
+        for (int i = 0; i < ENDPOINT_PATTERNS.length; i++) {
+            url = ENDPOINT_PATTERNS[i].matcher(url).replaceAll(ENDPOINT_REPLACEMENTS[i]);
+        }
+        return url;
+    }
+
+    /**
+     * Finish the HTML, and write the summary
+     *
+     * @param summary where to write each line of the summary
+     */
+    public synchronized void finish(Consumer<String> summary) {
+        if (html != null) {
+            writeHtmlFromTableEnd();
+            html.flush();
+        }
+        summary.accept("allEntries.length = " + allCount);
+        summary.accept("filteredEntries.length = " + filteredCount);
+        summary.accept("Average POST time = " + postTime / postCount);
+        summary.accept("Average GET time = " + getTime / getCount);
+        for (Map.Entry<String, EndpointStats> e : endpoints.entrySet()) {
+            Histogram ms = e.getValue().micros;
+            Histogram b = e.getValue().bytes;
+            summary.accept(
+                    String.format(
+                            "%s: n=%d ms: p50=%.1f p90=%.1f p99=%.1f max=%.1f;"
+                                    + " bytes: p50=%d p99=%d max=%d",
+                            e.getKey(),
+                            ms.getTotalCount(),
+                            ms.getValueAtPercentile(50) / 1000.0,
+                            ms.getValueAtPercentile(90) / 1000.0,
+                            ms.getValueAtPercentile(99) / 1000.0,
+                            ms.getMaxValue() / 1000.0,
+                            b.getValueAtPercentile(50),
+                            b.getValueAtPercentile(99),
+                            b.getMaxValue()));
+        }
+        if (!countPerSecond.isEmpty()) {
+            long first = countPerSecond.firstKey(), last = countPerSecond.lastKey();
+            Histogram perSecond = new Histogram(SIGNIFICANT_VALUE_DIGITS);
+            for (long second = first; second <= last; second++) {
+                perSecond.recordValue(countPerSecond.getOrDefault(second, 0L));
+            }
+            summary.accept(
+                    String.format(
+                            "Throughput per second over %d sec: mean=%.1f p50=%d max=%d",
+                            perSecond.getTotalCount(),
+                            perSecond.getMean(),
+                            perSecond.getValueAtPercentile(50),
+                            perSecond.getMaxValue()));
+        }
+    }
+
+    /** Write the HTML up to and including the opening table tag */
+    private void writeHtmlThruTableStart() {
+        html.println("<html>");
+        html.println("<head>");
+        html.println("<meta http-equiv=\"Content-Type\" content=\"text/html; charset=utf-8\" />");
+        html.println("<style>");
+        html.println("table {border-collapse: collapse;}");
+        html.println("table, th, td {border: 1px solid black; padding: 4px;}");
+        html.println("td:nth-child(3){text-align: right;}"); // ms
+        html.println("td:nth-child(4){text-align: right;}"); // size
+        html.println("</style>");
+        html.println("</head>");
+        html.println("<body>");
+        html.println("<table>");
+    }
+
+    private void writeHtmlFromTableEnd() {
+        html.println("</table>");
+        html.println("</body>");
+        html.println("</html>");
+    }
+
+    private void writeHtmlTableRow(boolean isHeader, String... cells) {
+        String cellStart = isHeader ? "<th>" : "<td>";
+        String cellEnd = isHeader ? "</th>" : "</td>";
+        html.println("<tr>");
+        for (String cell : cells) {
+            html.println(cellStart + escapeHtml(cell) + cellEnd);
+        }
+        html.println("</tr>");
+    }
+
+    private static String escapeHtml(String s) {
+        return s.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+}
@@ -0,0 +1,335 @@
+package org.unicode.cldr.surveydriver;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.openqa.selenium.devtools.Command;
+import org.openqa.selenium.devtools.DevTools;
+import org.openqa.selenium.devtools.Event;
+import org.openqa.selenium.json.Json;
+
+/**
+ * Record the network requests of one browser session, from Chrome DevTools Protocol Network events,
+ * as a HAR (HTTP Archive) file, and/or pass them to a SurveyDriverHarAnalyzer shared by all
+ * sessions, so that server latency can be summarized after a multi-session run without saving HAR
+ * files by hand.
+ *
+ * <p>Each file is named for the session id and userIndex, like
+ * target/har/session-9c0d7d317d64cb53-user-12.har, and is written as the requests finish, so it
+ * doesn't grow in memory. The file can be analyzed later with SurveyDriverHarAnalyzer.
+ *
+ * <p>The time for each entry is from when the request was sent until the response finished loading;
+ * the size is the number of bytes transferred. Only the fields used by SurveyDriverHarAnalyzer are
+ * filled in; the others have HAR's "unknown" values.
+ *
+ * <p>The Network events and commands are used by name, with their parameters read as JSON maps,
+ * rather than through the generated classes of one CDP version (like devtools.v120), so recording
+ * works with whatever version of Chrome the grid has. A request that never finishes, like a
+ * long-poll, is dropped after PENDING_TIMEOUT_SECONDS, and at most MAX_PENDING requests are kept.
+ */
+public class SurveyDriverHarRecorder {
+
+    /** The directory for HAR files */
+    static final Path HAR_DIRECTORY = Paths.get("target", "har");
+
+    /** Only requests whose URLs contain a match are included in the aggregate summary */
+    static final String AGGREGATE_FILTER_REGEX = "/api/";
+
+    /** The analyzer shared by all sessions, reported by reportAggregate */
+    private static final SurveyDriverHarAnalyzer aggregate =
+            new SurveyDriverHarAnalyzer(AGGREGATE_FILTER_REGEX, null, null, null);
+
+    /** A request not finished after this long is dropped, and not recorded */
+    static final long PENDING_TIMEOUT_SECONDS = SurveyDriver.TIME_OUT_SECONDS;
+
+    /** The most requests kept waiting to finish; the oldest are dropped beyond this */
+    static final int MAX_PENDING = 1000;
+
+    private static final Event<Map<String, Object>> REQUEST_WILL_BE_SENT =
+            networkEvent("requestWillBeSent");
+    private static final Event<Map<String, Object>> RESPONSE_RECEIVED =
+            networkEvent("responseReceived");
+    private static final Event<Map<String, Object>> LOADING_FINISHED =
+            networkEvent("loadingFinished");
+    private static final Event<Map<String, Object>> LOADING_FAILED = networkEvent("loadingFailed");
+
+    private static Event<Map<String, Object>> networkEvent(String name) {
+        return new Event<>("Network." + name, input -> input.read(Json.MAP_TYPE));
+    }
+
+    /** A request that has been sent and not yet finished */
+    private static class Pending {
+        final String startedDateTime;
+        final double startSeconds;
+        final String method;
+        final String url;
+        final String postData;
+        int status = 0;
+        String statusText = "";
+        String mimeType = "";
+
+        Pending(Map<String, Object> e) {
+            startedDateTime =
+                    Instant.ofEpochMilli(Math.round(getNumber(e, "wallTime") * 1000)).toString();
+            startSeconds = getNumber(e, "timestamp");
+            Map<?, ?> request = (Map<?, ?>) e.get("request");
+            method = String.valueOf(request.get("method"));
+            url = String.valueOf(request.get("url"));
+            Object post = request.get("postData");
+            postData = (post == null) ? "" : post.toString();
+        }
+    }
+
+    private final String sessionId;
+    private final int userIndex;
+    private final boolean toAggregate;
+    private final Map<String, Pending> pending = new LinkedHashMap<>(); // oldest first
+    private final Json json = new Json();
+    private Writer writer = null;
+    private Path path = null;
+    private boolean firstEntry = true;
+    private DevTools devTools = null;
+    private int entryCount = 0;
+
+    /**
+     * @param sessionId the WebDriver session id
+     * @param userIndex the simulated user
+     * @param toFile true to write a HAR file for this session
+     * @param toAggregate true to add the entries to the summary for all sessions
+     */
+    public SurveyDriverHarRecorder(
+            String sessionId, int userIndex, boolean toFile, boolean toAggregate) {
+        this.sessionId = sessionId;
+        this.userIndex = userIndex;
+        this.toAggregate = toAggregate;
+        if (toFile) {
+            path = HAR_DIRECTORY.resolve("session-" + sessionId + "-user-" + userIndex + ".har");
+        }
+    }
+
+    /**
+     * Start recording
+     *
+     * @param devTools the DevTools connection for the session, or null if not available
+     * @return true if recording, else false
+     */
+    public synchronized boolean start(DevTools devTools) {
+        if (devTools == null) {
+            SurveyDriverLog.println("HAR recording unavailable, no DevTools");
+            return false;
+        }
+        try {
+            if (path != null) {
+                Files.createDirectories(HAR_DIRECTORY);
+                writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+                writeStart();
+            }
+            devTools.addListener(REQUEST_WILL_BE_SENT, this::onRequest);
+            devTools.addListener(RESPONSE_RECEIVED, this::onResponse);
+            devTools.addListener(LOADING_FINISHED, this::onFinished);
+            devTools.addListener(LOADING_FAILED, this::onFailed);
+            devTools.send(new Command<Void>("Network.enable", Map.of()));
+        } catch (Exception e) {
+            SurveyDriverLog.println("HAR recording unavailable; " + e);
+            closeWriter();
+            return false;
+        }
+        this.devTools = devTools;
+        return true;
+    }
+
+    private static double getNumber(Map<?, ?> map, String key) {
+        Object value = map.get(key);
+        return (value instanceof Number) ? ((Number) value).doubleValue() : 0;
+    }
+
+    private synchronized void onRequest(Map<String, Object> e) {
+        Pending p = new Pending(e);
+        dropStale(p.startSeconds);
+        /*
+         * A redirect is sent with the same request id; remove the old entry first, so that the
+         * map stays ordered by start time
+         */
+        String requestId = String.valueOf(e.get("requestId"));
+        pending.remove(requestId);
+        pending.put(requestId, p);
+    }
+
+    /**
+     * Drop the requests that have been pending longer than PENDING_TIMEOUT_SECONDS, and the oldest
+     * ones beyond MAX_PENDING
+     *
+     * @param nowSeconds the current CDP timestamp
+     */
+    private void dropStale(double nowSeconds) {
+        Iterator<Pending> it = pending.values().iterator();
+        while (it.hasNext()) {
+            Pending p = it.next();
+            if (pending.size() < MAX_PENDING
+                    && nowSeconds - p.startSeconds <= PENDING_TIMEOUT_SECONDS) {
+                break;
+            }
+            it.remove();
+        }
+    }
+
+    private synchronized void onResponse(Map<String, Object> e) {
+        Pending p = pending.get(String.valueOf(e.get("requestId")));
+        Map<?, ?> response = (Map<?, ?>) e.get("response");
+        if (p != null && response != null) {
+            p.status = (int) getNumber(response, "status");
+            p.statusText = String.valueOf(response.get("statusText"));
+            p.mimeType = String.valueOf(response.get("mimeType"));
+        }
+    }
+
+    private synchronized void onFinished(Map<String, Object> e) {
+        Pending p = pending.remove(String.valueOf(e.get("requestId")));
+        if (p != null) {
+            finish(
+                    p,
+                    getNumber(e, "timestamp"),
+                    Math.round(getNumber(e, "encodedDataLength")),
+                    null);
+        }
+    }
+
+    private synchronized void onFailed(Map<String, Object> e) {
+        Pending p = pending.remove(String.valueOf(e.get("requestId")));
+        if (p != null) {
+            finish(p, getNumber(e, "timestamp"), 0, String.valueOf(e.get("errorText")));
+        }
+    }
+
+    private void finish(Pending p, double endSeconds, long size, String error) {
+        ++entryCount;
+        double millis = (endSeconds - p.startSeconds) * 1000;
+        if (toAggregate) {
+            SurveyDriverHarAnalyzer.Entry entry = new SurveyDriverHarAnalyzer.Entry();
+            entry.startedDateTime = p.startedDateTime;
+            entry.time = millis;
+            entry.method = p.method;
+            entry.url = p.url;
+            entry.postData = p.postData;
+            entry.size = size;
+            aggregate.add(entry);
+        }
+        if (writer != null) {
+            try {
+                writer.write(firstEntry ? "\n" : ",\n");
+                writer.write(json.toJson(toHarEntry(p, millis, size, error)));
+                firstEntry = false;
+            } catch (IOException ex) {
+                SurveyDriverLog.println("Unable to write " + path + "; " + ex);
+                closeWriter();
+            }
+        }
+    }
+
+    private Map<String, Object> toHarEntry(Pending p, double millis, long size, String error) {
+        Map<String, Object> request = new LinkedHashMap<>();
+        request.put("method", p.method);
+        request.put("url", p.url);
+        request.put("httpVersion", "");
+        request.put("cookies", Collections.emptyList());
+        request.put("headers", Collections.emptyList());
+        request.put("queryString", Collections.emptyList());
+        if (!p.postData.isEmpty()) {
+            Map<String, Object> postData = new LinkedHashMap<>();
+            postData.put("mimeType", "");
+            postData.put("text", p.postData);
+            request.put("postData", postData);
+        }
+        request.put("headersSize", -1);
+        request.put("bodySize", -1);
+
+        Map<String, Object> content = new LinkedHashMap<>();
+        content.put("size", size);
+        content.put("mimeType", p.mimeType);
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("status", p.status);
+        response.put("statusText", p.statusText);
+        response.put("httpVersion", "");
+        response.put("cookies", Collections.emptyList());
+        response.put("headers", Collections.emptyList());
+        response.put("content", content);
+        response.put("redirectURL", "");
+        response.put("headersSize", -1);
+        response.put("bodySize", size);
+        if (error != null) {
+            response.put("_error", error);
+        }
+
+        Map<String, Object> timings = new LinkedHashMap<>();
+        timings.put("send", 0);
+        timings.put("wait", millis);
+        timings.put("receive", 0);
+
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("startedDateTime", p.startedDateTime);
+        entry.put("time", millis);
+        entry.put("request", request);
+        entry.put("response", response);
+        entry.put("cache", Collections.emptyMap());
+        entry.put("timings", timings);
+        entry.put("_sessionId", sessionId);
+        entry.put("_userIndex", userIndex);
+        return entry;
+    }
+
+    private void writeStart() throws IOException {
+        writer.write(
+                "{\"log\": {\"version\": \"1.2\", \"creator\": {\"name\": \"cldr-apps-webdriver\","
+                        + " \"version\": \"\"}, \"comment\": "
+                        + json.toJson("session " + sessionId + ", user " + userIndex)
+                        + ", \"entries\": [");
+    }
+
+    /** Stop recording, and finish the HAR file */
+    public synchronized void stop() {
+        if (devTools != null) {
+            try {
+                devTools.send(new Command<Void>("Network.disable", Map.of()));
+            } catch (Exception e) {
+                SurveyDriverLog.println(e);
+            }
+            devTools = null;
+        }
+        if (writer != null) {
+            try {
+                writer.write("\n]}}\n");
+            } catch (IOException e) {
+                SurveyDriverLog.println(e);
+            }
+            closeWriter();
+            SurveyDriverLog.println("Recorded " + entryCount + " requests in " + path);
+        }
+        pending.clear();
+    }
+
+    private void closeWriter() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            SurveyDriverLog.println(e);
+        }
+        writer = null;
+    }
+
+    /** Log the summary of the requests recorded by all sessions */
+    public static void reportAggregate() {
+        SurveyDriverLog.println("Network requests recorded for all sessions:");
+        aggregate.finish(SurveyDriverLog::println);
+    }
+}
@@ -0,0 +1,130 @@
+package org.unicode.cldr.surveydriver;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Latency histograms for Survey Tool operations, keyed by operation, locale, and page.
+ *
+ * <p>Each SurveyDriver session records into its own instance. Recording is wait-free, so an
+ * instance may also be shared by several threads. When a session finishes, its histograms are
+ * merged into the global instance, which then covers all the sessions run from this JVM.
+ */
+public class SurveyDriverLatency {
+
+    /** Latencies longer than this are recorded as this value */
+    private static final long HIGHEST_TRACKABLE_MICROSECONDS = TimeUnit.MINUTES.toMicros(10);
+
+    private static final int SIGNIFICANT_VALUE_DIGITS = 3;
+
+    private static final SurveyDriverLatency global = new SurveyDriverLatency();
+
+    private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    /**
+     * Get the instance that accumulates the latencies of all sessions in this JVM
+     *
+     * @return the global instance
+     */
+    public static SurveyDriverLatency getGlobal() {
+        return global;
+    }
+
+    /**
+     * Make the key identifying a histogram
+     *
+     * @param operation the operation, like "vote" or "load"
+     * @param loc the locale, like "sr"
+     * @param page the page, like "Languages_A_D"
+     * @return the key, like "vote sr/Languages_A_D"
+     */
+    public static String key(String operation, String loc, String page) {
+        return operation + " " + loc + "/" + page;
+    }
+
+    /**
+     * Record the time elapsed since the given start time
+     *
+     * @param operation the operation
+     * @param loc the locale
+     * @param page the page
+     * @param startNanos the start time, from System.nanoTime()
+     */
+    public void recordSince(String operation, String loc, String page, long startNanos) {
+        recordNanos(key(operation, loc, page), System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Record the given latency
+     *
+     * @param key the histogram key, see key()
+     * @param nanos the latency in nanoseconds
+     */
+    public void recordNanos(String key, long nanos) {
+        recordMicros(key, TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    /**
+     * Record the given latency
+     *
+     * @param key the histogram key, see key()
+     * @param micros the latency in microseconds
+     */
+    public void recordMicros(String key, long micros) {
+        getHistogram(key)
+                .recordValue(Math.max(0, Math.min(micros, HIGHEST_TRACKABLE_MICROSECONDS)));
+    }
+
+    private Histogram getHistogram(String key) {
+        return histograms.computeIfAbsent(
+                key,
+                k ->
+                        new ConcurrentHistogram(
+                                HIGHEST_TRACKABLE_MICROSECONDS, SIGNIFICANT_VALUE_DIGITS));
+    }
+
+    /**
+     * Add all the values recorded here to the given instance
+     *
+     * @param other the instance to receive the values
+     */
+    public void mergeInto(SurveyDriverLatency other) {
+        synchronized (other) {
+            histograms.forEach((key, h) -> other.getHistogram(key).add(h));
+        }
+    }
+
+    /** Discard all recorded values */
+    public void reset() {
+        histograms.clear();
+    }
+
+    /**
+     * Log a line for each histogram, with count, percentiles, and maximum in milliseconds
+     *
+     * @param title a heading for the report
+     */
+    public void report(String title) {
+        SurveyDriverLog.println("Latency (ms) " + title + ":");
+        if (histograms.isEmpty()) {
+            SurveyDriverLog.println("  (nothing recorded)");
+            return;
+        }
+        new TreeMap<>(histograms)
+                .forEach(
+                        (key, h) ->
+                                SurveyDriverLog.println(
+                                        String.format(
+                                                "  %-40s n=%-7d p50=%-9.1f p90=%-9.1f p99=%-9.1f max=%.1f",
+                                                key,
+                                                h.getTotalCount(),
+                                                h.getValueAtPercentile(50) / 1000.0,
+                                                h.getValueAtPercentile(90) / 1000.0,
+                                                h.getValueAtPercentile(99) / 1000.0,
+                                                h.getMaxValue() / 1000.0)));
+    }
+}
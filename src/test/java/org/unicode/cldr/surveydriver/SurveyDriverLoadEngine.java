@@ -0,0 +1,168 @@
+package org.unicode.cldr.surveydriver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Run a number of simulated vetters at the same time from a single JVM, each in its own browser
+ * session in the selenium grid.
+ *
+ * <p>Each session is a separate SurveyDriver with its own RemoteWebDriver, WebDriverWait, and user
+ * index (hence its own credentials from SurveyDriverCredentials.getForUser). At most maxParallel
+ * sessions run at once; the rest wait in the executor's queue until a session finishes.
+ */
+public class SurveyDriverLoadEngine {
+
+    /**
+     * Pause between starting consecutive sessions, so that the grid isn't asked to create dozens of
+     * browsers in the same instant
+     */
+    static final long SESSION_START_STAGGER_MILLISECONDS = 500;
+
+    private final int sessionCount;
+    private final int maxParallel;
+
+    /**
+     * @param sessionCount the total number of sessions (simulated vetters) to run
+     * @param maxParallel the maximum number of sessions to run at the same time, typically the
+     *     number of slots in the selenium grid
+     */
+    public SurveyDriverLoadEngine(int sessionCount, int maxParallel) {
+        if (sessionCount < 1 || maxParallel < 1) {
+            throw new IllegalArgumentException(
+                    "sessionCount and maxParallel must be positive: "
+                            + sessionCount
+                            + ", "
+                            + maxParallel);
+        }
+        this.sessionCount = sessionCount;
+        this.maxParallel = maxParallel;
+    }
+
+    /**
+     * Run all the sessions and wait for them to finish.
+     *
+     * @return true if every session passed, else false
+     */
+    public boolean run() {
+        final long startTime = System.currentTimeMillis();
+        final int threadCount = Math.min(sessionCount, maxParallel);
+        SurveyDriverLog.println(
+                "Starting " + sessionCount + " session(s), at most " + threadCount + " at a time");
+        final AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor =
+                Executors.newFixedThreadPool(
+                        threadCount,
+                        r ->
+                                new Thread(
+                                        r,
+                                        "surveydriver-session-" + threadNumber.getAndIncrement()));
+        List<Future<Boolean>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < sessionCount; i++) {
+                final int sessionNumber = i;
+                futures.add(executor.submit(() -> runSession(sessionNumber)));
+                if (i + 1 < threadCount) {
+                    Thread.sleep(SESSION_START_STAGGER_MILLISECONDS);
+                }
+            }
+        } catch (InterruptedException e) {
+            SurveyDriverLog.println("Interrupted while starting sessions; " + e);
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdown();
+        }
+        int passCount = 0;
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                if (futures.get(i).get()) {
+                    ++passCount;
+                } else {
+                    SurveyDriverLog.println("❌ Session " + i + " failed");
+                }
+            } catch (ExecutionException e) {
+                SurveyDriverLog.println("❌ Session " + i + " threw an exception");
+                SurveyDriverLog.println(e);
+            } catch (InterruptedException e) {
+                SurveyDriverLog.println("Interrupted while waiting for session " + i + "; " + e);
+                Thread.currentThread().interrupt();
+                executor.shutdownNow();
+                break;
+            }
+        }
+        double deltaTime = System.currentTimeMillis() - startTime;
+        String result = (passCount == sessionCount) ? "✅" : "❌";
+        SurveyDriverLog.println(
+                result
+                        + " "
+                        + passCount
+                        + " of "
+                        + sessionCount
+                        + " session(s) passed in "
+                        + deltaTime / 1000.0
+                        + " sec");
+        SurveyDriverLatency.getGlobal().report("for all sessions");
+        SurveyDriverRetry.report();
+        if (SurveyDriver.USE_LOGIN_CACHE) {
+            SurveyDriverLog.println(
+                    "Login cache: " + SurveyDriverLoginCache.getGlobal().getStats());
+        }
+        if (SurveyDriver.RECORD_HAR_AGGREGATE) {
+            SurveyDriverHarRecorder.reportAggregate();
+        }
+        return passCount == sessionCount;
+    }
+
+    /**
+     * Run the scenarios for the given session number, in a session from the pool if
+     * SurveyDriver.USE_SESSION_POOL, else in a new session
+     *
+     * @param sessionNumber a number in the range [0, ..., sessionCount - 1]
+     * @return true if the scenarios passed, else false
+     */
+    private boolean runSession(int sessionNumber) {
+        if (!SurveyDriver.USE_SESSION_POOL) {
+            return newSession(sessionNumber).runScenarios();
+        }
+        SurveyDriverSessionPool pool = SurveyDriverSessionPool.getGlobal();
+        SurveyDriver s = pool.borrow(getUserIndex(sessionNumber));
+        boolean ok = false;
+        try {
+            ok = s.runEnabledScenarios();
+        } finally {
+            pool.giveBack(s, ok);
+        }
+        return ok;
+    }
+
+    /**
+     * Create the SurveyDriver for the given session number
+     *
+     * @param sessionNumber a number in the range [0, ..., sessionCount - 1]
+     * @return the new SurveyDriver, not yet set up
+     */
+    private SurveyDriver newSession(int sessionNumber) {
+        int userIndex = getUserIndex(sessionNumber);
+        return (userIndex == SurveyDriverSessionPool.ANY_USER)
+                ? new SurveyDriver()
+                : new SurveyDriver(userIndex);
+    }
+
+    /**
+     * Get the user index for the given session number. With a single session, the user index is
+     * determined later from the grid, as when running one SurveyDriver per IDE launch. With more
+     * than one session in this JVM, the session number is used as the user index, so that no two
+     * sessions log in as the same simulated user.
+     *
+     * @param sessionNumber a number in the range [0, ..., sessionCount - 1]
+     * @return the user index, or SurveyDriverSessionPool.ANY_USER
+     */
+    private int getUserIndex(int sessionNumber) {
+        return (sessionCount == 1) ? SurveyDriverSessionPool.ANY_USER : sessionNumber;
+    }
+}
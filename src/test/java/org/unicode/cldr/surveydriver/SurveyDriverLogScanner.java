@@ -0,0 +1,272 @@
+package org.unicode.cldr.surveydriver;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.logging.LogEntry;
+import org.openqa.selenium.logging.Logs;
+
+/**
+ * Scan the browser logs for known error signatures.
+ *
+ * <p>Each call to drain() fetches the logs once (which empties the browser's buffer) and matches
+ * every entry against all the signatures in a single pass, using an Aho-Corasick automaton, so the
+ * cost doesn't grow with the number of signatures. Counts are kept per signature, both in total and
+ * since the last call to takeCount, so that entries fetched by one caller are not lost to another.
+ *
+ * <p>If a SurveyDriverConsole is pushing entries to accept() as they happen, drain() does nothing.
+ */
+public class SurveyDriverLogScanner {
+
+    /** The signatures we know about */
+    static final String[] SIGNATURES = {
+        /*
+         * Reference: https://unicode.org/cldr/trac/ticket/11238 "browser console shows error message,
+         * there is INHERITANCE_MARKER without inheritedValue"
+         */
+        "INHERITANCE_MARKER without inheritedValue",
+        /*
+         * Reference: https://unicode.org/cldr/trac/ticket/11270
+         * "Use floating point instead of integers for vote counts"
+         */
+        "Rounding matters for useKeywordAnnotationVoting",
+        /*
+         * Logged by the Survey Tool front end when the vetting table is rebuilt
+         */
+        "insertRows: recreating table from scratch",
+    };
+
+    /**
+     * A deterministic automaton matching any of a set of strings. It is immutable once built, and
+     * may be shared by any number of scanners.
+     */
+    static class Automaton {
+        private final String[] patterns;
+
+        /** For each char, its index in the alphabet of chars occurring in the patterns, or -1 */
+        private final int[] alphabetIndex = new int[Character.MAX_VALUE + 1];
+
+        /** For each state and alphabet index, the next state */
+        private final int[][] delta;
+
+        /** For each state, the indexes of the patterns that end there */
+        private final int[][] output;
+
+        Automaton(String[] patterns) {
+            this.patterns = patterns.clone();
+            Arrays.fill(alphabetIndex, -1);
+            int alphabetSize = 0;
+            for (String p : patterns) {
+                for (char c : p.toCharArray()) {
+                    if (alphabetIndex[c] < 0) {
+                        alphabetIndex[c] = alphabetSize++;
+                    }
+                }
+            }
+            /*
+             * Build the trie
+             */
+            List<int[]> gotoList = new ArrayList<>();
+            List<List<Integer>> outList = new ArrayList<>();
+            gotoList.add(newRow(alphabetSize));
+            outList.add(new ArrayList<>());
+            for (int i = 0; i < patterns.length; i++) {
+                int state = 0;
+                for (char c : patterns[i].toCharArray()) {
+                    int a = alphabetIndex[c];
+                    if (gotoList.get(state)[a] < 0) {
+                        gotoList.get(state)[a] = gotoList.size();
+                        gotoList.add(newRow(alphabetSize));
+                        outList.add(new ArrayList<>());
+                    }
+                    state = gotoList.get(state)[a];
+                }
+                outList.get(state).add(i);
+            }
+            /*
+             * Compute failure links breadth-first, turning the trie into a complete transition table
+             */
+            int stateCount = gotoList.size();
+            delta = gotoList.toArray(new int[stateCount][]);
+            int[] fail = new int[stateCount];
+            Queue<Integer> queue = new ArrayDeque<>();
+            for (int a = 0; a < alphabetSize; a++) {
+                if (delta[0][a] < 0) {
+                    delta[0][a] = 0;
+                } else {
+                    fail[delta[0][a]] = 0;
+                    queue.add(delta[0][a]);
+                }
+            }
+            while (!queue.isEmpty()) {
+                int state = queue.remove();
+                outList.get(state).addAll(outList.get(fail[state]));
+                for (int a = 0; a < alphabetSize; a++) {
+                    int next = delta[state][a];
+                    if (next < 0) {
+                        delta[state][a] = delta[fail[state]][a];
+                    } else {
+                        fail[next] = delta[fail[state]][a];
+                        queue.add(next);
+                    }
+                }
+            }
+            output = new int[stateCount][];
+            for (int s = 0; s < stateCount; s++) {
+                output[s] = outList.get(s).stream().mapToInt(Integer::intValue).toArray();
+            }
+        }
+
+        private static int[] newRow(int alphabetSize) {
+            int[] row = new int[alphabetSize];
+            Arrays.fill(row, -1);
+            return row;
+        }
+
+        /**
+         * Find which patterns occur in the given text
+         *
+         * @param text the text
+         * @param found set to true for each pattern found; others are left unchanged
+         * @return the number of distinct patterns newly found
+         */
+        int match(CharSequence text, boolean[] found) {
+            int newCount = 0;
+            int state = 0;
+            for (int i = 0, len = text.length(); i < len; i++) {
+                int a = alphabetIndex[text.charAt(i)];
+                state = (a < 0) ? 0 : delta[state][a];
+                for (int p : output[state]) {
+                    if (!found[p]) {
+                        found[p] = true;
+                        ++newCount;
+                    }
+                }
+            }
+            return newCount;
+        }
+
+        int size() {
+            return patterns.length;
+        }
+
+        String getPattern(int i) {
+            return patterns[i];
+        }
+    }
+
+    private static final Automaton defaultAutomaton = new Automaton(SIGNATURES);
+
+    private final WebDriver driver;
+    private final Automaton automaton;
+    private final Map<String, Integer> indexOf = new HashMap<>();
+    private final long[] totalCounts;
+    private final long[] pendingCounts;
+    private boolean pushed = false;
+
+    /**
+     * Make a scanner for the known SIGNATURES
+     *
+     * @param driver the driver whose logs are to be scanned
+     */
+    public SurveyDriverLogScanner(WebDriver driver) {
+        this(driver, defaultAutomaton);
+    }
+
+    SurveyDriverLogScanner(WebDriver driver, Automaton automaton) {
+        this.driver = driver;
+        this.automaton = automaton;
+        for (int i = 0; i < automaton.size(); i++) {
+            indexOf.put(automaton.getPattern(i), i);
+        }
+        totalCounts = new long[automaton.size()];
+        pendingCounts = new long[automaton.size()];
+    }
+
+    /** Fetch all available log entries from the browser and count those matching signatures */
+    public synchronized void drain() {
+        if (pushed) {
+            return;
+        }
+        Logs logs = driver.manage().logs();
+        for (String type : logs.getAvailableLogTypes()) {
+            for (LogEntry entry : logs.get(type)) {
+                accept(entry.getMessage(), entry.toString());
+            }
+        }
+    }
+
+    /**
+     * @param pushed true if entries are pushed to accept() as they happen, so drain() should not
+     *     poll the browser log
+     */
+    synchronized void setPushed(boolean pushed) {
+        this.pushed = pushed;
+    }
+
+    /**
+     * Count the signatures in one log message. Each signature is counted at most once per message.
+     *
+     * @param message the message
+     * @param description the description to log if the message matches any signature
+     */
+    synchronized void accept(String message, String description) {
+        boolean[] found = new boolean[automaton.size()];
+        if (automaton.match(message, found) == 0) {
+            return;
+        }
+        SurveyDriverLog.println(description);
+        for (int i = 0; i < found.length; i++) {
+            if (found[i]) {
+                ++totalCounts[i];
+                ++pendingCounts[i];
+            }
+        }
+    }
+
+    /**
+     * Drain the logs, and get the number of entries containing the given signature since the
+     * previous call to takeCount for that signature
+     *
+     * @param signature one of the signatures of this scanner
+     * @return the number of entries
+     */
+    public synchronized int takeCount(String signature) {
+        int i = getIndex(signature);
+        drain();
+        long count = pendingCounts[i];
+        pendingCounts[i] = 0;
+        return (int) count;
+    }
+
+    /**
+     * @param signature one of the signatures of this scanner
+     * @return the number of entries containing the signature, ever seen by this scanner
+     */
+    public synchronized long getTotal(String signature) {
+        return totalCounts[getIndex(signature)];
+    }
+
+    private int getIndex(String signature) {
+        Integer i = indexOf.get(signature);
+        if (i == null) {
+            throw new IllegalArgumentException("Unknown log signature: " + signature);
+        }
+        return i;
+    }
+
+    /** Log the total for each signature that has occurred */
+    public synchronized void report() {
+        for (int i = 0; i < totalCounts.length; i++) {
+            if (totalCounts[i] > 0) {
+                SurveyDriverLog.println(
+                        "Log signature '" + automaton.getPattern(i) + "': " + totalCounts[i]);
+            }
+        }
+    }
+}
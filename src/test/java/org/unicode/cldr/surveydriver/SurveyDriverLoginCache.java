@@ -0,0 +1,141 @@
+package org.unicode.cldr.surveydriver;
+
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openqa.selenium.Cookie;
+
+/**
+ * Remember the Survey Tool session cookies of each simulated user, so that a new browser session
+ * for the same user can be logged in by adding the cookies, rather than by typing the email and
+ * password into the login form and waiting for the server to check them.
+ *
+ * <p>The first login for each user (identified by email, see SurveyDriverCredentials) is a real
+ * one; its cookies are captured. A later session adds them with driver.manage().addCookie and then
+ * checks that it's really logged in; if not, for example because the server session has expired,
+ * the cookies are forgotten and the caller logs in through the user interface again. Cookies are
+ * also forgotten when they expire, or after maxAgeNanos.
+ */
+public class SurveyDriverLoginCache {
+
+    private static final SurveyDriverLoginCache global =
+            new SurveyDriverLoginCache(
+                    TimeUnit.SECONDS.toNanos(SurveyDriver.LOGIN_CACHE_MAX_AGE_SECONDS));
+
+    /** The cookies of one real login */
+    private static class Login {
+        final Set<Cookie> cookies;
+        final long capturedNanos = System.nanoTime();
+
+        Login(Set<Cookie> cookies) {
+            this.cookies = cookies;
+        }
+    }
+
+    private final long maxAgeNanos;
+    private final Map<String, Login> logins = new ConcurrentHashMap<>();
+    private final Map<String, Object> locks = new ConcurrentHashMap<>();
+    private final AtomicInteger capturedCount = new AtomicInteger();
+    private final AtomicInteger reusedCount = new AtomicInteger();
+    private final AtomicInteger rejectedCount = new AtomicInteger();
+
+    /**
+     * @param maxAgeNanos how long cookies may be reused after the login that produced them
+     */
+    public SurveyDriverLoginCache(long maxAgeNanos) {
+        this.maxAgeNanos = maxAgeNanos;
+    }
+
+    /**
+     * Get the cache shared by all sessions in this JVM
+     *
+     * @return the global cache
+     */
+    public static SurveyDriverLoginCache getGlobal() {
+        return global;
+    }
+
+    /**
+     * Get an object on which to synchronize while logging in as the given user, so that sessions
+     * for the same user don't all log in for real at the same time
+     *
+     * @param email the user's email
+     * @return the lock
+     */
+    public Object lockFor(String email) {
+        return locks.computeIfAbsent(email, k -> new Object());
+    }
+
+    /**
+     * Get the cookies for the given user
+     *
+     * @param email the user's email
+     * @return the cookies, or null if there are none still usable
+     */
+    public Set<Cookie> get(String email) {
+        Login login = logins.get(email);
+        if (login == null) {
+            return null;
+        }
+        if (System.nanoTime() - login.capturedNanos > maxAgeNanos || hasExpired(login.cookies)) {
+            logins.remove(email, login);
+            return null;
+        }
+        return login.cookies;
+    }
+
+    private static boolean hasExpired(Set<Cookie> cookies) {
+        Date now = new Date();
+        for (Cookie c : cookies) {
+            if (c.getExpiry() != null && c.getExpiry().before(now)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Remember the cookies of a real login
+     *
+     * @param email the user's email
+     * @param cookies the browser's cookies just after logging in
+     */
+    public void capture(String email, Set<Cookie> cookies) {
+        if (cookies == null || cookies.isEmpty()) {
+            return;
+        }
+        logins.put(email, new Login(new HashSet<>(cookies)));
+        capturedCount.incrementAndGet();
+    }
+
+    /** Note that cookies were used successfully instead of a real login */
+    public void reused() {
+        reusedCount.incrementAndGet();
+    }
+
+    /**
+     * Forget the cookies for the given user, because they no longer work
+     *
+     * @param email the user's email
+     */
+    public void reject(String email) {
+        logins.remove(email);
+        rejectedCount.incrementAndGet();
+    }
+
+    /**
+     * @return a short description of how often the cache was used
+     */
+    public String getStats() {
+        return capturedCount.get()
+                + " real logins captured, "
+                + reusedCount.get()
+                + " reused, "
+                + rejectedCount.get()
+                + " rejected";
+    }
+}
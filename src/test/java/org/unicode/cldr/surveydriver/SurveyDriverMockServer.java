@@ -0,0 +1,443 @@
+package org.unicode.cldr.surveydriver;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.openqa.selenium.json.Json;
+
+/**
+ * A stand-in for Survey Tool, serving just enough of the front end and the API for the SurveyDriver
+ * scenarios, so that the driver's own overhead (waits, round trips, session handling) can be
+ * measured without a real cldr-apps deployment or a network.
+ *
+ * <p>The single page has the elements the scenarios look for: the "Log In" button and the Username
+ * and Password inputs used by loginWithButton, glyphicon-user once logged in,
+ * LoadingMessageSection, left-sidebar with its dragger, overlay, coverageLevel, title-locale, the
+ * general-open-dash button, and DashboardScroller. The vetting table for aa/Numbering_Systems is
+ * taken from data/table0.txt, table1.txt, and table2.txt, according to the votes for its first row,
+ * as expected by SurveyDriverVettingTable; any other page gets a small table with the rows used by
+ * fast voting.
+ *
+ * <p>The API requests (api/auth/login, api/voting/{loc}/page/{page}, api/voting/{loc}/row/{id},
+ * api/summary/dashboard/{loc}/{level}) are the ones made by the real front end and by
+ * SurveyDriverApiClient. Each API response is delayed by latencyMillis plus a random time up to
+ * jitterMillis, to imitate a server under some load.
+ *
+ * <p>To use it, run the tests with -Dsurveydriver.mock=true, so that runTests starts this server
+ * and SurveyDriver.BASE_URL refers to it; or run main and set -Dsurveydriver.baseUrl. The browsers
+ * must be able to reach this machine, as with a grid started by selenium-grid-start.sh.
+ */
+public class SurveyDriverMockServer {
+
+    static final int DEFAULT_PORT = 9081;
+
+    /** The path under which everything is served, as for the real server */
+    static final String CONTEXT = "/cldr-apps/";
+
+    /** The URL for SurveyDriver.BASE_URL when the server is on DEFAULT_PORT */
+    static final String DEFAULT_BASE_URL = "http://localhost:" + DEFAULT_PORT + CONTEXT;
+
+    /** The page, and the row voted on, in SurveyDriverVettingTable.testVettingTable */
+    static final String VETTING_TABLE_LOCALE = "aa";
+
+    static final String VETTING_TABLE_PAGE = "Numbering_Systems";
+    static final String VETTING_TABLE_ROW = "7b8ee7884f773afa";
+
+    /** The new value entered in SurveyDriverVettingTable.testVettingTable, giving table2.txt */
+    static final String VETTING_TABLE_NEW_VALUE = "taml";
+
+    private static final String SESSION_COOKIE = "SURVEYDRIVER_MOCK_SESSION";
+
+    private static final Pattern PAGE_PATTERN = Pattern.compile("voting/([^/]+)/page/([^/]+)");
+    private static final Pattern ROW_PATTERN = Pattern.compile("voting/([^/]+)/row/([^/]+)");
+    private static final Pattern DASHBOARD_PATTERN =
+            Pattern.compile("summary/dashboard/([^/]+)/([^/]+)");
+
+    private static final Json json = new Json();
+
+    /*
+     * The whole front end. Routes are in the hash, as in Survey Tool: "" for the locale list,
+     * "loc//" for a locale's General Info page, and "loc/page" for a vetting page. Survey Tool
+     * calls window.testTable (if defined) whenever it builds the table; see
+     * SurveyDriverTableWatcher.
+     */
+    private static final String PAGE_HTML =
+            "<!DOCTYPE html>\n"
+                    + "<html><head><meta charset=\"utf-8\"><title>Survey Tool</title>\n"
+                    + "<style>\n"
+                    + "#left-sidebar { position: fixed; left: 0; top: 40px; width: 0; }\n"
+                    + "#left-sidebar.active { width: 200px; background: #eee; }\n"
+                    + "#dragger { position: fixed; left: 0; top: 40px; width: 12px; height: 400px;"
+                    + " background: #ccc; }\n"
+                    + "#main { margin-left: 20px; }\n"
+                    + "</style></head><body>\n"
+                    + "<div id=\"header\"><span id=\"title-locale\"></span>\n"
+                    + "<select id=\"coverageLevel\"><option value=\"auto\">Auto</option>"
+                    + "<option value=\"modern\">Modern</option>"
+                    + "<option value=\"comprehensive\">Comprehensive</option></select>\n"
+                    + "<span id=\"user-info\"><button id=\"login-button\" type=\"button\">"
+                    + "<span>Log In</span></button></span>\n"
+                    + "<div id=\"login-form\" style=\"display: none\">"
+                    + "<input type=\"text\" placeholder=\"Username\">"
+                    + "<input type=\"password\" placeholder=\"Password\"></div></div>\n"
+                    + "<div id=\"left-sidebar\" class=\"active\"></div><div id=\"dragger\"></div>\n"
+                    + "<div id=\"overlay\" class=\"\" style=\"display: none\"></div>\n"
+                    + "<div id=\"LoadingMessageSection\">Loading...</div>\n"
+                    + "<div id=\"main\"></div>\n"
+                    + "<script>\n"
+                    + "var base = location.pathname.replace(/v$/, '');\n"
+                    + "var byId = function (id) { return document.getElementById(id); };\n"
+                    + "var current = {loc: '', page: ''};\n"
+                    + "var api = function (method, path, body) {\n"
+                    + "  var init = {method: method, headers: {'Accept': 'application/json'}};\n"
+                    + "  if (body !== undefined) {\n"
+                    + "    init.headers['Content-Type'] = 'application/json';\n"
+                    + "    init.body = JSON.stringify(body);\n"
+                    + "  }\n"
+                    + "  return fetch(base + 'api/' + path, init).then(function (r) {\n"
+                    + "    return r.ok ? r.json() : null;\n"
+                    + "  });\n"
+                    + "};\n"
+                    + "var loading = function (on) {\n"
+                    + "  byId('LoadingMessageSection').style.display = on ? 'block' : 'none';\n"
+                    + "};\n"
+                    + "var showUser = function (email) {\n"
+                    + "  byId('login-form').style.display = 'none';\n"
+                    + "  byId('user-info').innerHTML =\n"
+                    + "      '<span class=\"glyphicon glyphicon-user\"></span> ' + email;\n"
+                    + "};\n"
+                    + "var loadTable = function (loc, page, rebuild) {\n"
+                    + "  return api('GET', 'voting/' + loc + '/page/' + page).then(function (data) {\n"
+                    + "    if (current.loc !== loc || current.page !== page) { return; }\n"
+                    + "    if (rebuild) { console.log('insertRows: recreating table from scratch'); }\n"
+                    + "    byId('main').innerHTML = data.html;\n"
+                    + "    if (window.testTable) { window.testTable({json: data}, false); }\n"
+                    + "    loading(false);\n"
+                    + "  });\n"
+                    + "};\n"
+                    + "var route = function () {\n"
+                    + "  var parts = location.hash.replace(/^#\\/?/, '').split('/');\n"
+                    + "  var loc = parts[0] || '', page = parts[1] || '';\n"
+                    + "  current = {loc: loc, page: page};\n"
+                    + "  byId('left-sidebar').className = 'active';\n"
+                    + "  byId('title-locale').textContent = loc;\n"
+                    + "  loading(true);\n"
+                    + "  if (!loc) {\n"
+                    + "    document.title = 'Survey Tool | Locale List';\n"
+                    + "    byId('main').innerHTML = '<p>Locale List</p>';\n"
+                    + "    loading(false);\n"
+                    + "  } else if (!page) {\n"
+                    + "    document.title = 'Survey Tool | ' + loc + ' | General Info';\n"
+                    + "    byId('main').innerHTML =\n"
+                    + "        '<button type=\"button\" class=\"btn general-open-dash\">Open Dashboard</button>';\n"
+                    + "    loading(false);\n"
+                    + "  } else {\n"
+                    + "    document.title = 'Survey Tool | ' + loc + ' | ' + page;\n"
+                    + "    loadTable(loc, page, false);\n"
+                    + "  }\n"
+                    + "};\n"
+                    + "var vote = function (tr, value) {\n"
+                    + "  var loc = current.loc, page = current.page;\n"
+                    + "  var id = tr.id.replace(/^(r@|row_)/, '');\n"
+                    + "  tr.classList.add('tr_checking2');\n"
+                    + "  api('POST', 'voting/' + loc + '/row/' + id, {value: value, voteLevelChanged: 0})\n"
+                    + "    .then(function (data) {\n"
+                    + "      tr.classList.remove('tr_checking2');\n"
+                    + "      if (data && data.rebuild) { loadTable(loc, page, true); }\n"
+                    + "    });\n"
+                    + "};\n"
+                    + "document.addEventListener('submit', function (e) { e.preventDefault(); }, true);\n"
+                    + "document.addEventListener('click', function (e) {\n"
+                    + "  var t = e.target;\n"
+                    + "  if (t.closest('#dragger')) {\n"
+                    + "    byId('left-sidebar').className = '';\n"
+                    + "  } else if (t.closest('#login-button')) {\n"
+                    + "    var form = byId('login-form'), inputs = form.getElementsByTagName('input');\n"
+                    + "    if (form.style.display === 'none') {\n"
+                    + "      form.style.display = 'inline';\n"
+                    + "      return;\n"
+                    + "    }\n"
+                    + "    api('POST', 'auth/login', {email: inputs[0].value, password: inputs[1].value})\n"
+                    + "      .then(function (data) { if (data) { showUser(inputs[0].value); } });\n"
+                    + "  } else if (t.closest('.general-open-dash')) {\n"
+                    + "    var loc = current.loc;\n"
+                    + "    api('GET', 'summary/dashboard/' + loc + '/comprehensive').then(function (data) {\n"
+                    + "      if (current.loc !== loc) { return; }\n"
+                    + "      var d = document.createElement('div');\n"
+                    + "      d.id = 'DashboardScroller';\n"
+                    + "      d.textContent = data.notifications.length + ' notifications';\n"
+                    + "      byId('main').appendChild(d);\n"
+                    + "    });\n"
+                    + "  } else if (t.closest('tr[id]')) {\n"
+                    + "    var tr = t.closest('tr[id]');\n"
+                    + "    if (t.tagName === 'INPUT' && t.type === 'radio') {\n"
+                    + "      vote(tr, t.value);\n"
+                    + "    } else if (t.closest('.addcell button')) {\n"
+                    + "      var cell = t.closest('.addcell');\n"
+                    + "      if (cell.getElementsByTagName('input').length === 0) {\n"
+                    + "        var input = document.createElement('input');\n"
+                    + "        input.type = 'text';\n"
+                    + "        input.className = 'form-control';\n"
+                    + "        cell.getElementsByTagName('form')[0].appendChild(input);\n"
+                    + "      }\n"
+                    + "    }\n"
+                    + "  }\n"
+                    + "});\n"
+                    + "document.addEventListener('keydown', function (e) {\n"
+                    + "  var t = e.target;\n"
+                    + "  if (e.key === 'Enter' && t.tagName === 'INPUT' && t.closest('.addcell')) {\n"
+                    + "    e.preventDefault();\n"
+                    + "    vote(t.closest('tr[id]'), t.value);\n"
+                    + "  }\n"
+                    + "});\n"
+                    + "window.addEventListener('hashchange', route);\n"
+                    + "api('GET', 'auth/info').then(function (data) { if (data) { showUser(data.email); } });\n"
+                    + "route();\n"
+                    + "</script></body></html>\n";
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final long latencyMillis;
+    private final long jitterMillis;
+    private final String[] tables;
+    private final String fastVotingTable;
+
+    /** Which of the tables is current for the vetting-table page, depending on the votes */
+    private volatile int tableIndex = 0;
+
+    /** Session id to email, for the sessions logged in */
+    private final Map<String, String> sessions = new ConcurrentHashMap<>();
+
+    private final AtomicInteger requestCount = new AtomicInteger();
+
+    /**
+     * Create the server, not yet started
+     *
+     * @param port the port, or 0 for any free port
+     * @param latencyMillis the minimum delay before each API response
+     * @param jitterMillis the maximum random delay added to latencyMillis
+     * @param dataDir the directory with table0.txt, table1.txt, and table2.txt
+     * @throws IOException if the tables can't be read or the port can't be opened
+     */
+    public SurveyDriverMockServer(int port, long latencyMillis, long jitterMillis, Path dataDir)
+            throws IOException {
+        this.latencyMillis = latencyMillis;
+        this.jitterMillis = jitterMillis;
+        tables = new String[3];
+        for (int t = 0; t < tables.length; t++) {
+            tables[t] = Files.readString(dataDir.resolve("table" + t + ".txt"));
+        }
+        fastVotingTable = makeTable(SurveyDriver.FAST_VOTING_ROW_IDS);
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext(CONTEXT, this::handle);
+        executor = SurveyDriverExecutors.newVetterExecutor("mock-server-", 50);
+        server.setExecutor(executor);
+    }
+
+    /** Start serving requests */
+    public void start() {
+        server.start();
+        SurveyDriverLog.println(
+                "Mock Survey Tool at "
+                        + getBaseUrl()
+                        + ", latency "
+                        + latencyMillis
+                        + " ms + up to "
+                        + jitterMillis
+                        + " ms");
+    }
+
+    /** Stop serving requests */
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+        SurveyDriverLog.println("Mock Survey Tool served " + requestCount.get() + " requests");
+    }
+
+    /**
+     * @return the URL to use as SurveyDriver.BASE_URL, like "http://localhost:9081/cldr-apps/"
+     */
+    public String getBaseUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + CONTEXT;
+    }
+
+    private void handle(HttpExchange ex) throws IOException {
+        requestCount.incrementAndGet();
+        try {
+            String path = ex.getRequestURI().getPath().substring(CONTEXT.length());
+            if (path.isEmpty() || path.equals("v")) {
+                send(ex, 200, "text/html; charset=utf-8", PAGE_HTML);
+            } else if (path.startsWith("api/")) {
+                delay();
+                handleApi(ex, path.substring("api/".length()));
+            } else {
+                send(ex, 404, "text/plain", "Not found");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            send(ex, 503, "text/plain", "Interrupted");
+        } finally {
+            ex.close();
+        }
+    }
+
+    private void delay() throws InterruptedException {
+        long millis = latencyMillis;
+        if (jitterMillis > 0) {
+            millis += ThreadLocalRandom.current().nextLong(jitterMillis + 1);
+        }
+        if (millis > 0) {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        }
+    }
+
+    private void handleApi(HttpExchange ex, String path) throws IOException {
+        Map<String, Object> result = new LinkedHashMap<>();
+        Matcher m;
+        if (path.equals("auth/login")) {
+            Map<String, Object> content = readJson(ex);
+            String sessionId = UUID.randomUUID().toString();
+            sessions.put(sessionId, String.valueOf(content.get("email")));
+            ex.getResponseHeaders()
+                    .add("Set-Cookie", SESSION_COOKIE + "=" + sessionId + "; Path=" + CONTEXT);
+            result.put("sessionId", sessionId);
+        } else if (path.equals("auth/info")) {
+            String email = sessions.get(getSessionId(ex));
+            if (email == null) {
+                send(ex, 401, "application/json", "{}");
+                return;
+            }
+            result.put("email", email);
+        } else if ((m = PAGE_PATTERN.matcher(path)).matches()) {
+            result.put("loc", m.group(1));
+            result.put("page", m.group(2));
+            result.put(
+                    "html",
+                    isVettingTablePage(m.group(1), m.group(2))
+                            ? tables[tableIndex]
+                            : fastVotingTable);
+        } else if ((m = ROW_PATTERN.matcher(path)).matches()) {
+            Object value = readJson(ex).get("value");
+            boolean rebuild =
+                    m.group(1).equals(VETTING_TABLE_LOCALE) && m.group(2).equals(VETTING_TABLE_ROW);
+            if (rebuild) {
+                if (value == null || value.toString().isEmpty()) {
+                    tableIndex = 0; // abstain
+                } else {
+                    tableIndex = VETTING_TABLE_NEW_VALUE.equals(value) ? 2 : 1;
+                }
+            }
+            result.put("ok", true);
+            result.put("rebuild", rebuild);
+        } else if ((m = DASHBOARD_PATTERN.matcher(path)).matches()) {
+            result.put("loc", m.group(1));
+            result.put("level", m.group(2));
+            result.put("notifications", List.of());
+        } else {
+            send(ex, 404, "application/json", "{}");
+            return;
+        }
+        send(ex, 200, "application/json", json.toJson(result));
+    }
+
+    private static boolean isVettingTablePage(String loc, String page) {
+        return loc.equals(VETTING_TABLE_LOCALE) && page.equals(VETTING_TABLE_PAGE);
+    }
+
+    /**
+     * Get the session id from the cookie sent by the browser, or from the header sent by
+     * SurveyDriverApiClient
+     */
+    private static String getSessionId(HttpExchange ex) {
+        String id = ex.getRequestHeaders().getFirst(SurveyDriverApiClient.SESSION_HEADER);
+        if (id != null) {
+            return id;
+        }
+        for (String header : ex.getRequestHeaders().getOrDefault("Cookie", List.of())) {
+            for (String pair : header.split(";")) {
+                String[] kv = pair.trim().split("=", 2);
+                if (kv.length == 2 && kv[0].equals(SESSION_COOKIE)) {
+                    return kv[1];
+                }
+            }
+        }
+        return "";
+    }
+
+    private static Map<String, Object> readJson(HttpExchange ex) throws IOException {
+        try (InputStream in = ex.getRequestBody()) {
+            String body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            return body.isBlank() ? new LinkedHashMap<>() : json.toType(body, Json.MAP_TYPE);
+        }
+    }
+
+    private static void send(HttpExchange ex, int status, String contentType, String body)
+            throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", contentType);
+        ex.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Make a vetting table with the given rows, each with Abstain, Winning, and Add cells like
+     * those of the real table
+     *
+     * @param rowIds the hexadecimal row ids, as in SurveyDriver.FAST_VOTING_ROW_IDS
+     * @return the html
+     */
+    private static String makeTable(String[] rowIds) {
+        StringBuilder sb =
+                new StringBuilder(
+                        "<table class=\"data table table-bordered vetting-page\""
+                                + " id=\"vetting-table\"><tbody>");
+        for (int i = 0; i < rowIds.length; i++) {
+            sb.append("<tr class=\"vother cov40\" id=\"row_")
+                    .append(rowIds[i])
+                    .append("\"><td class=\"d-code codecell\"><span>code")
+                    .append(i)
+                    .append("</span></td><td class=\"nocell\"><input class=\"ichoice-o\"")
+                    .append(" type=\"radio\" title=\"click to vote\" value=\"\"></td>")
+                    .append("<td class=\"proposedcell\"><input class=\"ichoice-x\" type=\"radio\"")
+                    .append(" title=\"click to vote\" value=\"value")
+                    .append(i)
+                    .append("\"></td><td class=\"addcell\"><form class=\"form-inline\">")
+                    .append("<button class=\"btn btn-primary\" type=\"submit\">+</button>")
+                    .append("</form></td><td class=\"othercell\"></td></tr>");
+        }
+        return sb.append("</tbody></table>").toString();
+    }
+
+    /**
+     * Run the server until the process is killed
+     *
+     * @param args optional port, latency in milliseconds, and jitter in milliseconds
+     * @throws IOException if the server can't be started
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        long latency = args.length > 1 ? Long.parseLong(args[1]) : 0;
+        long jitter = args.length > 2 ? Long.parseLong(args[2]) : 0;
+        new SurveyDriverMockServer(port, latency, jitter, Paths.get("data")).start();
+    }
+}
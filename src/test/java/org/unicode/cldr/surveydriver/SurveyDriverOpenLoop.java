@@ -0,0 +1,239 @@
+package org.unicode.cldr.surveydriver;
+
+import java.net.http.HttpClient;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Issue Survey Tool API operations (votes and dashboard requests) at a target rate, regardless of
+ * how quickly the server responds.
+ *
+ * <p>The fast-voting and dashboard tests are closed loops: each operation starts when the previous
+ * one finishes, so when the server slows down, the offered load goes down too and the slow
+ * responses are under-represented (coordinated omission). Here, operations start at the times given
+ * by a SurveyDriverArrivals schedule, each on its own thread, and latency is measured from the
+ * intended start time. If the server, or this client, falls behind, the waiting time is included in
+ * the latency.
+ *
+ * <p>Operations that haven't finished within TIME_OUT_SECONDS after the last one was started are
+ * dropped: their latency is recorded as the time from their intended start until they were dropped,
+ * and the test fails, so that the slowest operations are not left out of the results.
+ */
+public class SurveyDriverOpenLoop {
+
+    /** The schedule: operations per second */
+    static final SurveyDriverArrivals ARRIVALS = SurveyDriverArrivals.poisson(50);
+
+    static final long DURATION_SECONDS = 300;
+
+    /** The number of logged-in simulated vetters among which operations are distributed */
+    static final int VETTER_COUNT = 100;
+
+    /** The fraction of operations that are dashboard requests; the rest are votes */
+    static final double DASHBOARD_FRACTION = 0.1;
+
+    /** The coverage level for dashboard requests */
+    static final String DASHBOARD_LEVEL = "comprehensive";
+
+    private final SurveyDriverArrivals arrivals;
+    private final long durationNanos;
+    private final SurveyDriverLatency latency = new SurveyDriverLatency();
+    private final List<SurveyDriverApiClient> clients = new ArrayList<>();
+    private final AtomicLong completedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+
+    /** The operations started or waiting to start, removed when they finish or are dropped */
+    private final Set<Operation> pending = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param arrivals the schedule
+     * @param durationSeconds how long to keep starting operations
+     */
+    public SurveyDriverOpenLoop(SurveyDriverArrivals arrivals, long durationSeconds) {
+        this.arrivals = arrivals;
+        this.durationNanos = TimeUnit.SECONDS.toNanos(durationSeconds);
+    }
+
+    /**
+     * Run the open-loop test with the default configuration
+     *
+     * @return true if the vetters logged in and every operation completed, else false
+     */
+    public static boolean test() {
+        return new SurveyDriverOpenLoop(ARRIVALS, DURATION_SECONDS).run(VETTER_COUNT);
+    }
+
+    /**
+     * Log in the simulated vetters, then start operations according to the schedule until the
+     * duration has passed, and wait for the operations to finish.
+     *
+     * @param vetterCount the number of simulated vetters
+     * @return true if the vetters logged in and every operation completed, else false
+     */
+    public boolean run(int vetterCount) {
+        HttpClient http = SurveyDriverApiClient.newHttpClient();
+        for (int i = 0; i < vetterCount; i++) {
+            SurveyDriverApiClient client = new SurveyDriverApiClient(http, SurveyDriver.BASE_URL);
+            try {
+                client.login(SurveyDriverCredentials.getForUser(i));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } catch (Exception e) {
+                SurveyDriverLog.println("❌ Open-loop login failed for user " + i + "; " + e);
+                return false;
+            }
+            clients.add(client);
+        }
+        ExecutorService executor =
+                SurveyDriverExecutors.newVetterExecutor(
+                        "open-loop-", SurveyDriver.API_PLATFORM_THREAD_COUNT);
+        final long startTime = System.nanoTime();
+        long intended = startTime;
+        long scheduledCount = 0;
+        long maxLagNanos = 0;
+        while (intended - startTime < durationNanos) {
+            long lag = System.nanoTime() - intended;
+            if (lag < 0) {
+                LockSupport.parkNanos(-lag);
+                if (Thread.currentThread().isInterrupted()) {
+                    break;
+                }
+            } else {
+                maxLagNanos = Math.max(maxLagNanos, lag);
+            }
+            Operation operation =
+                    new Operation(
+                            clients.get((int) (scheduledCount % vetterCount)),
+                            intended,
+                            ThreadLocalRandom.current());
+            pending.add(operation);
+            executor.execute(operation);
+            ++scheduledCount;
+            long gap = arrivals.nextGapNanos(intended - startTime);
+            if (gap < 0) {
+                gap = TimeUnit.SECONDS.toNanos(1); // rate is zero for now; check again later
+            }
+            intended += gap;
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(SurveyDriver.TIME_OUT_SECONDS, TimeUnit.SECONDS)) {
+                SurveyDriverLog.println("Open-loop operations still running after time out");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+        for (Operation operation : pending) {
+            operation.drop();
+        }
+        long droppedCount = scheduledCount - completedCount.get() - failedCount.get();
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        latency.report("for open-loop operations, measured from intended start");
+        latency.mergeInto(SurveyDriverLatency.getGlobal());
+        SurveyDriverLog.println(
+                String.format(
+                        "Open loop: scheduled %d, completed %d, failed %d, dropped %d in %.1f sec;"
+                                + " achieved %.1f/sec; max scheduling lag %.1f ms",
+                        scheduledCount,
+                        completedCount.get(),
+                        failedCount.get(),
+                        droppedCount,
+                        seconds,
+                        completedCount.get() / seconds,
+                        maxLagNanos / 1e6));
+        if (droppedCount > 0) {
+            SurveyDriverLog.println(
+                    "❌ Open loop dropped "
+                            + droppedCount
+                            + " operation(s) unfinished after "
+                            + SurveyDriver.TIME_OUT_SECONDS
+                            + " sec");
+        }
+        return failedCount.get() == 0 && droppedCount == 0;
+    }
+
+    /** One operation, chosen at random when it is scheduled */
+    private class Operation implements Runnable {
+        private final SurveyDriverApiClient client;
+        private final long intendedStart;
+        private final boolean dashboard;
+        private final String op, loc, page;
+
+        /**
+         * @param client the simulated vetter
+         * @param intendedStart the time at which the schedule calls for the operation to start
+         * @param random the source of the choice of operation
+         */
+        Operation(SurveyDriverApiClient client, long intendedStart, Random random) {
+            this.client = client;
+            this.intendedStart = intendedStart;
+            dashboard = random.nextDouble() < DASHBOARD_FRACTION;
+            if (dashboard) {
+                op = "open-dashboard";
+                loc =
+                        SurveyDriverDashboard.locales[
+                                random.nextInt(SurveyDriverDashboard.locales.length)];
+                page = DASHBOARD_LEVEL;
+            } else {
+                op = "open-vote";
+                loc = SurveyDriver.FAST_VOTING_LOCALE;
+                page = SurveyDriver.FAST_VOTING_PAGE;
+            }
+        }
+
+        /**
+         * Perform the operation, and record its latency from the intended start time and its
+         * service time from the actual start time
+         */
+        @Override
+        public void run() {
+            final long actualStart = System.nanoTime();
+            final Random random = ThreadLocalRandom.current();
+            try {
+                if (dashboard) {
+                    client.getDashboard(loc, DASHBOARD_LEVEL);
+                } else {
+                    String[] rowIds = SurveyDriver.FAST_VOTING_ROW_IDS;
+                    String value = random.nextBoolean() ? SurveyDriverApiVoting.NEW_VALUE : null;
+                    client.vote(loc, rowIds[random.nextInt(rowIds.length)], value);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                drop();
+                return;
+            } catch (Exception e) {
+                if (pending.remove(this)) {
+                    failedCount.incrementAndGet();
+                    SurveyDriverLog.println("Open-loop operation failed; " + e);
+                }
+                return;
+            }
+            if (pending.remove(this)) {
+                latency.recordSince(op, loc, page, intendedStart);
+                latency.recordSince(op + "-service", loc, page, actualStart);
+                completedCount.incrementAndGet();
+            }
+        }
+
+        /**
+         * Give up on the operation, if it hasn't finished, recording its latency so far from the
+         * intended start time; it is counted as neither completed nor failed
+         */
+        void drop() {
+            if (pending.remove(this)) {
+                latency.recordSince(op, loc, page, intendedStart);
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package org.unicode.cldr.surveydriver;
+
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Collect the browser's Navigation Timing and Resource Timing entries after a page load, so that
+ * slowness can be attributed to the server (time to first byte, waiting for Survey Tool API
+ * responses) or to the client (DOMContentLoaded, load, rendering).
+ *
+ * <p>A single script gets the navigation entry (only once per document, since later Survey Tool
+ * "pages" are loaded without a new document) and the resource entries for the Survey Tool API, and
+ * then clears the resource entries, so that each call only gets the requests made since the
+ * previous call.
+ */
+public class SurveyDriverPageTiming {
+
+    private static final String HARVEST_SCRIPT =
+            "var t = window.surveyDriverPageTiming, nav = null;\n"
+                    + "if (!t) {\n"
+                    + "  t = window.surveyDriverPageTiming = {};\n"
+                    + "  performance.setResourceTimingBufferSize(1000);\n"
+                    + "  var n = performance.getEntriesByType('navigation')[0];\n"
+                    + "  if (n) {\n"
+                    + "    nav = {ttfb: n.responseStart, dcl: n.domContentLoadedEventEnd,\n"
+                    + "        load: n.loadEventEnd};\n"
+                    + "  }\n"
+                    + "}\n"
+                    + "var res = performance.getEntriesByType('resource').filter(function (r) {\n"
+                    + "  return r.name.indexOf('/api/') >= 0;\n"
+                    + "}).map(function (r) {\n"
+                    + "  return {name: r.name, duration: r.duration,\n"
+                    + "      wait: r.responseStart > 0 ? r.responseStart - r.requestStart : -1};\n"
+                    + "});\n"
+                    + "performance.clearResourceTimings();\n"
+                    + "return {nav: nav, resources: res};";
+
+    /** The kinds of request we're interested in, and how to recognize them from their URLs */
+    private static final String[] KINDS = {"xhr-row", "xhr-page", "xhr-dashboard"};
+
+    private static final Pattern[] KIND_PATTERNS = {
+        Pattern.compile("/api/voting/[^/]+/row/"),
+        Pattern.compile("/api/voting/[^/]+/page/"),
+        Pattern.compile("/api/summary/dashboard/"),
+    };
+
+    private final WebDriver driver;
+
+    public SurveyDriverPageTiming(WebDriver driver) {
+        this.driver = driver;
+    }
+
+    /**
+     * Get the timing entries since the previous call, and record them
+     *
+     * <p>The navigation entry is recorded as "nav-ttfb", "nav-dcl", and "nav-load"; each API
+     * request is recorded by kind, such as "xhr-row" for its total duration and "xhr-row-wait" for
+     * the time from sending the request to the first byte of the response.
+     *
+     * @param latency where to record the timings
+     * @param loc the locale for the latency keys, or "*" to combine all locales
+     * @param page the page for the latency keys
+     * @return a short summary of the timings, or null if they couldn't be obtained
+     */
+    public String harvest(SurveyDriverLatency latency, String loc, String page) {
+        Object result;
+        try {
+            result = ((JavascriptExecutor) driver).executeScript(HARVEST_SCRIPT);
+        } catch (Exception e) {
+            SurveyDriverLog.println("Unable to get page timing; " + e);
+            return null;
+        }
+        if (!(result instanceof Map)) {
+            return null;
+        }
+        StringBuilder summary = new StringBuilder();
+        Object nav = ((Map<?, ?>) result).get("nav");
+        if (nav instanceof Map) {
+            Map<?, ?> m = (Map<?, ?>) nav;
+            recordMillis(latency, "nav-ttfb", loc, page, m.get("ttfb"), summary);
+            recordMillis(latency, "nav-dcl", loc, page, m.get("dcl"), summary);
+            recordMillis(latency, "nav-load", loc, page, m.get("load"), summary);
+        }
+        int[] counts = new int[KINDS.length];
+        double[] totals = new double[KINDS.length];
+        double[] waits = new double[KINDS.length];
+        Object resources = ((Map<?, ?>) result).get("resources");
+        if (resources instanceof List) {
+            for (Object o : (List<?>) resources) {
+                Map<?, ?> r = (Map<?, ?>) o;
+                int k = kindOf(String.valueOf(r.get("name")));
+                if (k < 0) {
+                    continue;
+                }
+                double duration = ((Number) r.get("duration")).doubleValue();
+                double wait = ((Number) r.get("wait")).doubleValue();
+                latency.recordMicros(
+                        SurveyDriverLatency.key(KINDS[k], loc, page), Math.round(duration * 1000));
+                if (wait >= 0) {
+                    latency.recordMicros(
+                            SurveyDriverLatency.key(KINDS[k] + "-wait", loc, page),
+                            Math.round(wait * 1000));
+                    waits[k] += wait;
+                }
+                ++counts[k];
+                totals[k] += duration;
+            }
+        }
+        for (int k = 0; k < KINDS.length; k++) {
+            if (counts[k] > 0) {
+                summary.append(
+                        String.format(
+                                " %d %s %.0f ms (wait %.0f ms)",
+                                counts[k], KINDS[k], totals[k], waits[k]));
+            }
+        }
+        return summary.toString().trim();
+    }
+
+    private static void recordMillis(
+            SurveyDriverLatency latency,
+            String op,
+            String loc,
+            String page,
+            Object millis,
+            StringBuilder summary) {
+        if (!(millis instanceof Number)) {
+            return;
+        }
+        double ms = ((Number) millis).doubleValue();
+        if (ms <= 0) {
+            return; // for example, the load event hasn't finished yet
+        }
+        latency.recordMicros(SurveyDriverLatency.key(op, loc, page), Math.round(ms * 1000));
+        summary.append(String.format(" %s %.0f ms", op, ms));
+    }
+
+    private static int kindOf(String url) {
+        for (int k = 0; k < KIND_PATTERNS.length; k++) {
+            if (KIND_PATTERNS[k].matcher(url).find()) {
+                return k;
+            }
+        }
+        return -1;
+    }
+}
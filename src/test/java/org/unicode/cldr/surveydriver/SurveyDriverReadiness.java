@@ -0,0 +1,250 @@
+package org.unicode.cldr.surveydriver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Wait until a page is ready, testing several conditions at once inside the browser.
+ *
+ * <p>After loading a page, we used to wait for the title, then for the loading message to go away,
+ * then hide the left sidebar and wait for it to be inactive, then wait for the overlay to be
+ * inactive; each of these polled separately, with several round trips per poll. Here, one
+ * executeAsyncScript call tests all the requested conditions whenever the DOM changes (and at
+ * FALLBACK_INTERVAL_MILLISECONDS), clicks the "dragger" to hide the left sidebar when needed, and
+ * returns when all the conditions are true at once, or the time runs out. The result tells which
+ * conditions are still pending, and when each one first became true.
+ */
+public class SurveyDriverReadiness {
+
+    /** The title contains the given string */
+    public static final String TITLE = "title";
+
+    /** The div whose id is "LoadingMessageSection" has the style "display: none" */
+    public static final String LOADED = "loaded";
+
+    /** The left sidebar is not active; it is hidden by clicking the "dragger" if necessary */
+    public static final String SIDEBAR = "sidebar";
+
+    /** The overlay is not active */
+    public static final String OVERLAY = "overlay";
+
+    private static final long FALLBACK_INTERVAL_MILLISECONDS = 250;
+
+    /** The minimum time between clicks on the dragger, while waiting for the sidebar to hide */
+    private static final long DRAGGER_CLICK_INTERVAL_MILLISECONDS = 1000;
+
+    /*
+     * Each test is only tried once the tests before it are true, so that, for example, the sidebar
+     * isn't clicked while the page is still loading
+     */
+    private static final String SCRIPT =
+            "var names = arguments[0], title = arguments[1], timeoutMs = arguments[2];\n"
+                    + "var intervalMs = arguments[3], clickMs = arguments[4];\n"
+                    + "var done = arguments[arguments.length - 1];\n"
+                    + "var now = function () { return performance.timeOrigin + performance.now(); };\n"
+                    + "var isActive = function (el) {\n"
+                    + "  return (el.getAttribute('class') || '').indexOf('active') >= 0;\n"
+                    + "};\n"
+                    + "var lastClick = 0;\n"
+                    + "var tests = {\n"
+                    + "  title: function () { return document.title.indexOf(title) >= 0; },\n"
+                    + "  loaded: function () {\n"
+                    + "    var el = document.getElementById('LoadingMessageSection');\n"
+                    + "    return el !== null && getComputedStyle(el).display.indexOf('none') >= 0;\n"
+                    + "  },\n"
+                    + "  sidebar: function () {\n"
+                    + "    var el = document.getElementById('left-sidebar');\n"
+                    + "    if (el === null) { return false; }\n"
+                    + "    if (!isActive(el)) { return true; }\n"
+                    + "    var dragger = document.getElementById('dragger');\n"
+                    + "    if (dragger && now() - lastClick >= clickMs) {\n"
+                    + "      lastClick = now();\n"
+                    + "      dragger.click();\n"
+                    + "    }\n"
+                    + "    return false;\n"
+                    + "  },\n"
+                    + "  overlay: function () {\n"
+                    + "    var el = document.getElementById('overlay');\n"
+                    + "    return el !== null && !isActive(el);\n"
+                    + "  }\n"
+                    + "};\n"
+                    + "var start = now(), times = {}, pending = names;\n"
+                    + "var check = function () {\n"
+                    + "  var stillPending = [];\n"
+                    + "  names.forEach(function (n) {\n"
+                    + "    var ok = false;\n"
+                    + "    if (stillPending.length === 0) {\n"
+                    + "      try { ok = !!tests[n](); } catch (e) { ok = false; }\n"
+                    + "    }\n"
+                    + "    if (ok) {\n"
+                    + "      if (times[n] === undefined) { times[n] = now(); }\n"
+                    + "    } else {\n"
+                    + "      stillPending.push(n);\n"
+                    + "    }\n"
+                    + "  });\n"
+                    + "  pending = stillPending;\n"
+                    + "  return pending.length === 0;\n"
+                    + "};\n"
+                    + "var result = function () {\n"
+                    + "  return {start: start, times: times, pending: pending};\n"
+                    + "};\n"
+                    + "if (check()) { done(result()); return; }\n"
+                    + "var finished = false, observer, interval, timer;\n"
+                    + "var finish = function () {\n"
+                    + "  if (finished) { return; }\n"
+                    + "  finished = true;\n"
+                    + "  observer.disconnect(); clearInterval(interval); clearTimeout(timer);\n"
+                    + "  done(result());\n"
+                    + "};\n"
+                    + "var onChange = function () { if (check()) { finish(); } };\n"
+                    + "observer = new MutationObserver(onChange);\n"
+                    + "observer.observe(document, {subtree: true, childList: true, attributes: true,\n"
+                    + "    characterData: true});\n"
+                    + "interval = setInterval(onChange, intervalMs);\n"
+                    + "timer = setTimeout(function () { check(); finish(); }, timeoutMs);\n";
+
+    private final WebDriver driver;
+    private final long timeoutMillis;
+    private final List<String> names = new ArrayList<>();
+    private String title = "";
+    private final Map<String, Long> readyMicros = new LinkedHashMap<>();
+
+    /**
+     * @param driver the driver; its script timeout must be longer than timeoutMillis
+     * @param timeoutMillis how long to wait before giving up
+     */
+    public SurveyDriverReadiness(WebDriver driver, long timeoutMillis) {
+        this.driver = driver;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * @param s the string expected to occur in the title
+     * @return this
+     */
+    public SurveyDriverReadiness title(String s) {
+        this.title = s;
+        return add(TITLE);
+    }
+
+    /**
+     * @return this, also waiting for the loading message to go away
+     */
+    public SurveyDriverReadiness loaded() {
+        return add(LOADED);
+    }
+
+    /**
+     * @return this, also hiding the left sidebar and waiting for it to be inactive
+     */
+    public SurveyDriverReadiness sidebarHidden() {
+        return add(SIDEBAR);
+    }
+
+    /**
+     * @return this, also waiting for the overlay to be inactive
+     */
+    public SurveyDriverReadiness overlayInactive() {
+        return add(OVERLAY);
+    }
+
+    private SurveyDriverReadiness add(String name) {
+        if (!names.contains(name)) {
+            names.add(name);
+        }
+        return this;
+    }
+
+    /**
+     * @return the names of the conditions, in order
+     */
+    public List<String> getNames() {
+        return Collections.unmodifiableList(names);
+    }
+
+    /**
+     * @return the string expected to occur in the title
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * Wait until all the conditions are true at once
+     *
+     * @param startNanos the System.nanoTime() when the page started loading, from which the time to
+     *     ready of each condition is measured
+     * @return the names of the conditions still not true (empty if the page is ready), or null if
+     *     the script could not be run, in which case the caller should wait some other way
+     */
+    public List<String> await(long startNanos) {
+        readyMicros.clear();
+        final long callNanos = System.nanoTime();
+        Object result;
+        try {
+            result =
+                    ((JavascriptExecutor) driver)
+                            .executeAsyncScript(
+                                    SCRIPT,
+                                    names,
+                                    title,
+                                    timeoutMillis,
+                                    FALLBACK_INTERVAL_MILLISECONDS,
+                                    DRAGGER_CLICK_INTERVAL_MILLISECONDS);
+        } catch (Exception e) {
+            SurveyDriverLog.println("Readiness probe unavailable; " + e);
+            return null;
+        }
+        if (!(result instanceof Map)) {
+            return null;
+        }
+        Map<?, ?> map = (Map<?, ?>) result;
+        /*
+         * The browser's clock and ours may differ, so add the browser's elapsed time (since the
+         * script started) to our own elapsed time (until the script was called)
+         */
+        double browserStart = ((Number) map.get("start")).doubleValue();
+        long beforeMicros = TimeUnit.NANOSECONDS.toMicros(callNanos - startNanos);
+        Object times = map.get("times");
+        if (times instanceof Map) {
+            for (String name : names) {
+                Object t = ((Map<?, ?>) times).get(name);
+                if (t instanceof Number) {
+                    double browserMillis = ((Number) t).doubleValue() - browserStart;
+                    readyMicros.put(name, beforeMicros + Math.round(browserMillis * 1000));
+                }
+            }
+        }
+        List<String> pending = new ArrayList<>();
+        Object p = map.get("pending");
+        if (p instanceof List) {
+            for (Object o : (List<?>) p) {
+                pending.add(String.valueOf(o));
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * @return for each condition that became true during the last call to await, the time in
+     *     microseconds from the start of loading until it first became true
+     */
+    public Map<String, Long> getReadyMicros() {
+        return Collections.unmodifiableMap(readyMicros);
+    }
+
+    /**
+     * @return a short description, for the log
+     */
+    @Override
+    public String toString() {
+        return Arrays.toString(names.toArray());
+    }
+}
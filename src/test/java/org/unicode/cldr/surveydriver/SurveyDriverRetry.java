@@ -0,0 +1,213 @@
+package org.unicode.cldr.surveydriver;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.openqa.selenium.StaleElementReferenceException;
+
+/**
+ * Retry an action that fails when the page changes under it, typically with
+ * StaleElementReferenceException because Survey Tool replaced an element while we were using it.
+ *
+ * <p>Each call site is identified by name, like "clickOnMainMenu". The number of retries is
+ * limited, and between attempts there is a randomized, exponentially increasing delay, so that we
+ * don't retry immediately while the page is still changing. For each call site, counts of calls,
+ * attempts, and failures, and the time spent retrying, are kept for all sessions and logged by
+ * report(), to show how much of the run time goes to retrying.
+ *
+ * <p>Usage: SurveyDriverRetry.at("clickOnMainMenu").run(retry -> ..., url)
+ */
+public class SurveyDriverRetry {
+
+    /** The default number of retries after the first attempt */
+    static final int DEFAULT_MAX_RETRIES = 4;
+
+    /** The default delay before the first retry; it doubles for each later retry */
+    static final long DEFAULT_BASE_BACKOFF_MILLISECONDS = 50;
+
+    /** The default limit on the delay between attempts */
+    static final long DEFAULT_MAX_BACKOFF_MILLISECONDS = 1000;
+
+    /**
+     * One attempt at an action
+     *
+     * @param <T> the type of the result
+     */
+    @FunctionalInterface
+    public interface Attempt<T> {
+        /**
+         * @param retry zero for the first attempt, then 1, 2, ... for retries, for example so that
+         *     elements can be found again when retrying
+         * @return the result, which must not be null
+         * @throws Exception if the attempt fails
+         */
+        T run(int retry) throws Exception;
+    }
+
+    /** The counters for one call site */
+    private static class Stats {
+        final LongAdder calls = new LongAdder();
+        final LongAdder attempts = new LongAdder();
+        final LongAdder failures = new LongAdder();
+        final LongAdder retryNanos = new LongAdder();
+    }
+
+    private static final Map<String, Stats> allStats = new ConcurrentHashMap<>();
+
+    private final String site;
+    private int maxRetries = DEFAULT_MAX_RETRIES;
+    private long baseBackoffMillis = DEFAULT_BASE_BACKOFF_MILLISECONDS;
+    private long maxBackoffMillis = DEFAULT_MAX_BACKOFF_MILLISECONDS;
+    private List<Class<? extends Exception>> retryable =
+            List.of(StaleElementReferenceException.class);
+
+    private SurveyDriverRetry(String site) {
+        this.site = site;
+    }
+
+    /**
+     * Get a retry policy with the default settings
+     *
+     * @param site the name of the call site, for logging and counting
+     * @return the policy
+     */
+    public static SurveyDriverRetry at(String site) {
+        return new SurveyDriverRetry(site);
+    }
+
+    /**
+     * @param maxRetries the number of retries after the first attempt
+     * @return this policy
+     */
+    public SurveyDriverRetry retries(int maxRetries) {
+        this.maxRetries = maxRetries;
+        return this;
+    }
+
+    /**
+     * @param baseMillis the delay before the first retry; it doubles for each later retry
+     * @param maxMillis the limit on the delay
+     * @return this policy
+     */
+    public SurveyDriverRetry backoff(long baseMillis, long maxMillis) {
+        this.baseBackoffMillis = baseMillis;
+        this.maxBackoffMillis = maxMillis;
+        return this;
+    }
+
+    /**
+     * @param exceptions the exceptions for which to retry, instead of the default,
+     *     StaleElementReferenceException; other exceptions end the action immediately
+     * @return this policy
+     */
+    public SurveyDriverRetry on(List<Class<? extends Exception>> exceptions) {
+        this.retryable = List.copyOf(exceptions);
+        return this;
+    }
+
+    /**
+     * Run the action, retrying according to this policy
+     *
+     * @param attempt the action
+     * @param where a description for the log, such as the url
+     * @param <T> the type of the result
+     * @return the result, or null if the action failed
+     */
+    public <T> T run(Attempt<T> attempt, String where) {
+        Stats stats = allStats.computeIfAbsent(site, k -> new Stats());
+        stats.calls.increment();
+        long firstFailureTime = 0;
+        try {
+            for (int retry = 0; ; retry++) {
+                stats.attempts.increment();
+                try {
+                    return attempt.run(retry);
+                } catch (Exception e) {
+                    if (firstFailureTime == 0) {
+                        firstFailureTime = System.nanoTime();
+                    }
+                    if (!isRetryable(e)) {
+                        SurveyDriverLog.println(e);
+                        break;
+                    }
+                    if (retry >= maxRetries) {
+                        SurveyDriverLog.println(
+                                site + " giving up after " + (retry + 1) + " attempts in " + where);
+                        break;
+                    }
+                    SurveyDriverLog.println(
+                            site
+                                    + " repeating for "
+                                    + e.getClass().getSimpleName()
+                                    + " in "
+                                    + where);
+                    if (!sleep(backoffMillis(retry))) {
+                        break;
+                    }
+                }
+            }
+            stats.failures.increment();
+            return null;
+        } finally {
+            if (firstFailureTime != 0) {
+                stats.retryNanos.add(System.nanoTime() - firstFailureTime);
+            }
+        }
+    }
+
+    private boolean isRetryable(Exception e) {
+        for (Class<? extends Exception> c : retryable) {
+            if (c.isInstance(e)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the delay before the given retry: a random time up to the exponential backoff, so that
+     * sessions which failed at the same moment don't all retry at the same moment
+     */
+    private long backoffMillis(int retry) {
+        long ceiling = Math.min(maxBackoffMillis, baseBackoffMillis << Math.min(retry, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /** Log the counters for each call site that has had to retry or has failed */
+    public static void report() {
+        allStats.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(
+                        e -> {
+                            Stats s = e.getValue();
+                            long calls = s.calls.sum();
+                            long attempts = s.attempts.sum();
+                            if (attempts == calls && s.failures.sum() == 0) {
+                                return;
+                            }
+                            SurveyDriverLog.println(
+                                    String.format(
+                                            "Retry %s: %d calls, %d retries, %d failed, %.1f sec"
+                                                    + " retrying",
+                                            e.getKey(),
+                                            calls,
+                                            attempts - calls,
+                                            s.failures.sum(),
+                                            s.retryNanos.sum()
+                                                    / (double) TimeUnit.SECONDS.toNanos(1)));
+                        });
+    }
+}
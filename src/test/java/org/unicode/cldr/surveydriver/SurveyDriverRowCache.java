@@ -0,0 +1,132 @@
+package org.unicode.cldr.surveydriver;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+/**
+ * Find elements in the vetting table by row id, cell class, and tag name, remembering them for the
+ * current page.
+ *
+ * <p>Formerly the row, the cell, and the element were each found with findElement, which is three
+ * round trips to the browser (through the grid) every time. Here, a single script finds the
+ * element, and the result is cached, so that later uses of the same element cost nothing. A cached
+ * element is only found again when the caller reports it stale (refresh), when the table may have
+ * been rebuilt (checkEpoch, clear), or when a new page is loaded (clear).
+ */
+public class SurveyDriverRowCache {
+
+    /*
+     * Find the row by id, then the first element in it with the class, then the first element in
+     * that with the tag. Return the element, or a string saying which part is missing.
+     */
+    private static final String FIND_SCRIPT =
+            "var row = document.getElementById(arguments[0]);\n"
+                    + "if (!row) { return 'row'; }\n"
+                    + "if (!arguments[1]) { return row; }\n"
+                    + "var cell = row.getElementsByClassName(arguments[1])[0];\n"
+                    + "if (!cell) { return 'cell'; }\n"
+                    + "if (!arguments[2]) { return cell; }\n"
+                    + "var el = cell.getElementsByTagName(arguments[2])[0];\n"
+                    + "return el || 'tag';";
+
+    private final WebDriver driver;
+    private final Map<String, WebElement> cache = new HashMap<>();
+    private long epoch = 0;
+    private String lastMissing = null;
+    private int findCount = 0, hitCount = 0;
+
+    public SurveyDriverRowCache(WebDriver driver) {
+        this.driver = driver;
+    }
+
+    /**
+     * Get the element, from the cache if possible
+     *
+     * @param rowId the id of the row element
+     * @param cellClass the class of the cell, such as "nocell", or null for the row itself
+     * @param tagName the tag, such as "input", or null for the cell itself
+     * @return the element, or null if not found; see getLastMissing
+     */
+    public WebElement get(String rowId, String cellClass, String tagName) {
+        WebElement el = cache.get(key(rowId, cellClass, tagName));
+        if (el != null) {
+            ++hitCount;
+            return el;
+        }
+        return find(rowId, cellClass, tagName);
+    }
+
+    /**
+     * Find the element again, for example after it turned out to be stale
+     *
+     * @param rowId the id of the row element
+     * @param cellClass the class of the cell, or null for the row itself
+     * @param tagName the tag, or null for the cell itself
+     * @return the element, or null if not found; see getLastMissing
+     */
+    public WebElement refresh(String rowId, String cellClass, String tagName) {
+        cache.remove(key(rowId, cellClass, tagName));
+        return find(rowId, cellClass, tagName);
+    }
+
+    private WebElement find(String rowId, String cellClass, String tagName) {
+        ++findCount;
+        lastMissing = null;
+        Object result;
+        try {
+            result =
+                    ((JavascriptExecutor) driver)
+                            .executeScript(FIND_SCRIPT, rowId, cellClass, tagName);
+        } catch (Exception e) {
+            SurveyDriverLog.println(e);
+            lastMissing = "row";
+            return null;
+        }
+        if (!(result instanceof WebElement)) {
+            lastMissing = String.valueOf(result);
+            return null;
+        }
+        WebElement el = (WebElement) result;
+        cache.put(key(rowId, cellClass, tagName), el);
+        return el;
+    }
+
+    /**
+     * @return "row", "cell", or "tag", whichever was missing the last time an element wasn't found
+     */
+    public String getLastMissing() {
+        return lastMissing;
+    }
+
+    /**
+     * Forget all the elements if the table may have been rebuilt since the last call
+     *
+     * @param newEpoch a number that changes whenever the table is rebuilt, such as the count of
+     *     "recreating table" log messages
+     */
+    public void checkEpoch(long newEpoch) {
+        if (newEpoch != epoch) {
+            epoch = newEpoch;
+            clear();
+        }
+    }
+
+    /** Forget all the elements, for example when a new page is loaded */
+    public void clear() {
+        cache.clear();
+    }
+
+    /**
+     * @return a short description of how often the cache was used
+     */
+    public String getStats() {
+        return findCount + " found by script, " + hitCount + " from cache";
+    }
+
+    private static String key(String rowId, String cellClass, String tagName) {
+        return rowId + "\t" + cellClass + "\t" + tagName;
+    }
+}
@@ -0,0 +1,233 @@
+package org.unicode.cldr.surveydriver;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keep browser sessions after their scenarios finish, so that later scenarios and crawl sessions
+ * can reuse them, skipping browser startup and (since a reused session is still logged in) the
+ * login flow.
+ *
+ * <p>Idle sessions are kept by user index. A session is borrowed, used, and given back; a session
+ * that failed, or that has been idle longer than maxIdleNanos, or that doesn't pass a health check
+ * when borrowed, is evicted (torn down) rather than reused. At most maxIdle sessions are kept; the
+ * rest are torn down when given back. Whatever remains is torn down by closeAll at the end of the
+ * run.
+ *
+ * <p>Each idle session still holds a grid slot (and its user index), so with a grid, a session is
+ * only kept if the grid has a free slot left, and before a new session is created on a grid with no
+ * free slot, an idle session of another user is evicted to make room for it.
+ */
+public class SurveyDriverSessionPool {
+
+    /** For borrow: any user index will do, or if a new session is needed, use the grid's */
+    public static final int ANY_USER = -1;
+
+    private static final SurveyDriverSessionPool global =
+            new SurveyDriverSessionPool(
+                    SurveyDriver.SESSION_POOL_MAX_IDLE,
+                    TimeUnit.SECONDS.toNanos(SurveyDriver.SESSION_POOL_MAX_IDLE_SECONDS),
+                    SurveyDriver.USE_REMOTE_WEBDRIVER ? SurveyDriverGrid.getGlobal() : null);
+
+    /** A session waiting to be reused */
+    private static class Idle {
+        final SurveyDriver s;
+        final long since = System.nanoTime();
+
+        Idle(SurveyDriver s) {
+            this.s = s;
+        }
+    }
+
+    private final int maxIdle;
+    private final long maxIdleNanos;
+    private final SurveyDriverGrid grid;
+    private final Map<Integer, Deque<Idle>> idle = new TreeMap<>();
+    private int idleCount = 0;
+    private int createdCount = 0, reusedCount = 0, evictedCount = 0;
+
+    /**
+     * @param maxIdle the maximum number of idle sessions to keep
+     * @param maxIdleNanos how long a session may be idle before it is evicted
+     * @param grid the grid whose slots the sessions use, or null if there is none
+     */
+    public SurveyDriverSessionPool(int maxIdle, long maxIdleNanos, SurveyDriverGrid grid) {
+        this.maxIdle = maxIdle;
+        this.maxIdleNanos = maxIdleNanos;
+        this.grid = grid;
+    }
+
+    /**
+     * Get the pool shared by all tests in this JVM
+     *
+     * @return the global pool
+     */
+    public static SurveyDriverSessionPool getGlobal() {
+        return global;
+    }
+
+    /**
+     * Get a session that is set up and ready to use, reusing an idle one if possible
+     *
+     * @param userIndex the simulated user, or ANY_USER
+     * @return the session
+     */
+    public SurveyDriver borrow(int userIndex) {
+        Idle candidate;
+        while ((candidate = take(userIndex)) != null) {
+            if (candidate.s.isHealthy()) {
+                synchronized (this) {
+                    ++reusedCount;
+                }
+                SurveyDriverLog.println(
+                        "Reusing session for user " + candidate.s.getUserIndex() + " from pool");
+                return candidate.s;
+            }
+            SurveyDriverLog.println(
+                    "Evicting unhealthy session for user " + candidate.s.getUserIndex());
+            evict(candidate.s);
+        }
+        makeRoomOnGrid();
+        SurveyDriver s = (userIndex == ANY_USER) ? new SurveyDriver() : new SurveyDriver(userIndex);
+        s.setUp();
+        synchronized (this) {
+            ++createdCount;
+        }
+        return s;
+    }
+
+    /**
+     * Take an idle session for the given user, evicting any that have been idle too long
+     *
+     * @return the session, or null if there is none
+     */
+    private Idle take(int userIndex) {
+        List<SurveyDriver> expired = new ArrayList<>();
+        Idle found = null;
+        synchronized (this) {
+            final long now = System.nanoTime();
+            for (Iterator<Map.Entry<Integer, Deque<Idle>>> it = idle.entrySet().iterator();
+                    it.hasNext(); ) {
+                Map.Entry<Integer, Deque<Idle>> e = it.next();
+                Deque<Idle> deque = e.getValue();
+                while (!deque.isEmpty() && now - deque.peekFirst().since > maxIdleNanos) {
+                    expired.add(deque.pollFirst().s);
+                    --idleCount;
+                }
+                if (found == null
+                        && !deque.isEmpty()
+                        && (userIndex == ANY_USER || userIndex == e.getKey())) {
+                    found = deque.pollLast();
+                    --idleCount;
+                }
+                if (deque.isEmpty()) {
+                    it.remove();
+                }
+            }
+        }
+        for (SurveyDriver s : expired) {
+            SurveyDriverLog.println("Evicting idle session for user " + s.getUserIndex());
+            evict(s);
+        }
+        return found;
+    }
+
+    /**
+     * If the grid has no free slot for a new session, evict the idle session that has been idle the
+     * longest (which, since borrow found none for the user, is another user's) to free one
+     */
+    private void makeRoomOnGrid() {
+        synchronized (this) {
+            if (grid == null || idleCount == 0) {
+                return;
+            }
+        }
+        if (grid.getFreeSlotCount() != 0) {
+            return; // free, or unknown
+        }
+        Idle oldest = null;
+        synchronized (this) {
+            Deque<Idle> oldestDeque = null;
+            for (Deque<Idle> deque : idle.values()) {
+                if (oldest == null || deque.peekFirst().since < oldest.since) {
+                    oldest = deque.peekFirst();
+                    oldestDeque = deque;
+                }
+            }
+            if (oldest != null) {
+                oldestDeque.pollFirst();
+                --idleCount;
+                idle.values().removeIf(Deque::isEmpty);
+            }
+        }
+        if (oldest != null) {
+            SurveyDriverLog.println(
+                    "Evicting idle session for user "
+                            + oldest.s.getUserIndex()
+                            + " to free a grid slot");
+            evict(oldest.s);
+        }
+    }
+
+    /**
+     * Give back a session when finished with it, to be reused or torn down
+     *
+     * @param s the session
+     * @param reusable false if the session failed or is otherwise not fit for reuse
+     */
+    public void giveBack(SurveyDriver s, boolean reusable) {
+        s.endScenarios();
+        /*
+         * Don't let idle sessions take the last free slot on the grid; unknown (-1) doesn't count
+         */
+        if (reusable && (grid == null || grid.getFreeSlotCount() != 0)) {
+            synchronized (this) {
+                if (idleCount < maxIdle) {
+                    idle.computeIfAbsent(s.getUserIndex(), k -> new ArrayDeque<>())
+                            .addLast(new Idle(s));
+                    ++idleCount;
+                    return;
+                }
+            }
+        }
+        evict(s);
+    }
+
+    private void evict(SurveyDriver s) {
+        synchronized (this) {
+            ++evictedCount;
+        }
+        try {
+            s.tearDown(false);
+        } catch (Exception e) {
+            SurveyDriverLog.println(e);
+        }
+    }
+
+    /** Tear down all the idle sessions, and log how often sessions were reused */
+    public void closeAll() {
+        List<SurveyDriver> all = new ArrayList<>();
+        synchronized (this) {
+            idle.values().forEach(deque -> deque.forEach(i -> all.add(i.s)));
+            idle.clear();
+            idleCount = 0;
+            SurveyDriverLog.println(
+                    "Session pool: "
+                            + createdCount
+                            + " created, "
+                            + reusedCount
+                            + " reused, "
+                            + evictedCount
+                            + " evicted, "
+                            + all.size()
+                            + " closed at end");
+        }
+        all.parallelStream().forEach(s -> s.tearDown(false));
+    }
+}
@@ -0,0 +1,392 @@
+package org.unicode.cldr.surveydriver;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compare two vetting tables row by row, reporting which rows and cells differ, rather than
+ * comparing (and on failure logging) the whole html of both tables.
+ *
+ * <p>Each table is split into rows (tr elements) in one pass over its (normalized) html. A row is
+ * identified by its id, like "r@7b8ee7884f773afa", or, if it has none, like a heading row, by its
+ * position, like "#0". Each row has a hash, as does the rest of the table outside the rows (the
+ * "frame"), so the verdict only needs the hashes; only the rows whose hashes differ are split into
+ * cells (td or th elements) and compared. A cell is identified by its class ending with "cell",
+ * like "proposedcell" or "nocell", or, if it has none, by its tag and position, like "th0"; the
+ * row's start tag is compared as the cell "tr". For each cell that differs, only the part that
+ * differs is logged, with a little context.
+ */
+public class SurveyDriverTableDiff {
+
+    /** The number of characters to show before and after the part of a cell that differs */
+    private static final int CONTEXT_LENGTH = 40;
+
+    /** The maximum number of characters to show of the part of a cell that differs */
+    private static final int MAX_DIFFERENCE_LENGTH = 200;
+
+    /** The FNV-1a offset basis and prime, for 32 bits */
+    private static final int FNV_OFFSET_BASIS = 0x811c9dc5;
+
+    private static final int FNV_PRIME = 0x01000193;
+
+    /** One row of a table */
+    public static class Row {
+        final String key;
+        final long hash;
+        final String html; // null if only the hash is known
+
+        Row(String key, long hash, String html) {
+            this.key = key;
+            this.hash = hash;
+            this.html = html;
+        }
+    }
+
+    /** A table split into rows */
+    public static class Table {
+        final long frameHash;
+        final String frameHtml; // null if only the hash is known
+        final List<Row> rows;
+        final Map<String, Row> rowsByKey = new HashMap<>();
+
+        Table(long frameHash, String frameHtml, List<Row> rows) {
+            this.frameHash = frameHash;
+            this.frameHtml = frameHtml;
+            this.rows = rows;
+            for (Row row : rows) {
+                rowsByKey.put(row.key, row);
+            }
+        }
+
+        /**
+         * Split the html of a table into rows
+         *
+         * @param html the html, already normalized, see SurveyDriverTableNormalizer
+         * @return the table
+         */
+        public static Table parse(String html) {
+            List<Row> rows = new ArrayList<>();
+            Map<String, Integer> keyCounts = new HashMap<>();
+            StringBuilder frame = new StringBuilder();
+            int i = 0;
+            int rowStart;
+            while ((rowStart = indexOfTag(html, "tr", i)) >= 0) {
+                int rowEnd = html.indexOf("</tr>", rowStart);
+                if (rowEnd < 0) {
+                    break;
+                }
+                rowEnd += "</tr>".length();
+                frame.append(html, i, rowStart);
+                String id = getAttribute(html, rowStart, "id");
+                String key = uniqueKey((id == null) ? "#" + rows.size() : id, keyCounts);
+                rows.add(
+                        new Row(
+                                key,
+                                hash(html, rowStart, rowEnd),
+                                html.substring(rowStart, rowEnd)));
+                i = rowEnd;
+            }
+            frame.append(html, i, html.length());
+            String frameHtml = frame.toString();
+            return new Table(hash(frameHtml, 0, frameHtml.length()), frameHtml, rows);
+        }
+
+        /**
+         * @return the number of rows
+         */
+        public int getRowCount() {
+            return rows.size();
+        }
+    }
+
+    /**
+     * Get the hash used for rows and frames: 32-bit FNV-1a over the UTF-16 code units, in the low
+     * 32 bits, and the length in code units, in the high 32 bits
+     *
+     * @param s the string
+     * @param start the start of the part to hash
+     * @param end the end of the part to hash
+     * @return the hash
+     */
+    static long hash(String s, int start, int end) {
+        int h = FNV_OFFSET_BASIS;
+        for (int i = start; i < end; i++) {
+            h = (h ^ s.charAt(i)) * FNV_PRIME;
+        }
+        return ((long) (end - start) << 32) | (h & 0xffffffffL);
+    }
+
+    /**
+     * Find the next start tag with the given name, like "<tr>" or "<tr class=...", but not "<track"
+     *
+     * @return the position of the "<", or -1 if there is none
+     */
+    private static int indexOfTag(String html, String tagName, int from) {
+        String open = "<" + tagName;
+        int i = from;
+        while ((i = html.indexOf(open, i)) >= 0) {
+            int after = i + open.length();
+            if (after < html.length()
+                    && (html.charAt(after) == '>'
+                            || SurveyDriverTableNormalizer.isWhitespace(html.charAt(after)))) {
+                return i;
+            }
+            i = after;
+        }
+        return -1;
+    }
+
+    /**
+     * Get the value of an attribute of the start tag at the given position
+     *
+     * @return the value, or null if the tag doesn't have the attribute
+     */
+    private static String getAttribute(String html, int tagStart, String name) {
+        int tagEnd = html.indexOf('>', tagStart);
+        if (tagEnd < 0) {
+            return null;
+        }
+        String attr = " " + name + "=\"";
+        int i = html.indexOf(attr, tagStart);
+        if (i < 0 || i > tagEnd) {
+            return null;
+        }
+        i += attr.length();
+        int end = html.indexOf('"', i);
+        return (end < 0 || end > tagEnd) ? null : html.substring(i, end);
+    }
+
+    private static String uniqueKey(String key, Map<String, Integer> keyCounts) {
+        int n = keyCounts.merge(key, 1, Integer::sum);
+        return (n == 1) ? key : key + "#" + (n - 1);
+    }
+
+    /**
+     * Split the html of a row into its start tag and cells
+     *
+     * @return the map from cell key to cell html, in order, starting with "tr"
+     */
+    private static Map<String, String> getCells(String rowHtml) {
+        Map<String, String> cells = new LinkedHashMap<>();
+        Map<String, Integer> keyCounts = new HashMap<>();
+        int tagEnd = rowHtml.indexOf('>');
+        cells.put("tr", rowHtml.substring(0, tagEnd + 1));
+        int i = tagEnd + 1;
+        int cellCount = 0;
+        for (; ; ) {
+            int td = indexOfTag(rowHtml, "td", i);
+            int th = indexOfTag(rowHtml, "th", i);
+            int cellStart = (td < 0) ? th : (th < 0) ? td : Math.min(td, th);
+            if (cellStart < 0) {
+                break;
+            }
+            String tagName = (cellStart == td) ? "td" : "th";
+            int cellEnd = rowHtml.indexOf("</" + tagName + ">", cellStart);
+            cellEnd = (cellEnd < 0) ? rowHtml.length() : cellEnd + tagName.length() + 3;
+            String key = getCellClass(rowHtml, cellStart);
+            if (key == null) {
+                key = tagName + cellCount;
+            }
+            cells.put(uniqueKey(key, keyCounts), rowHtml.substring(cellStart, cellEnd));
+            ++cellCount;
+            i = cellEnd;
+        }
+        return cells;
+    }
+
+    /**
+     * Get the class of the cell whose start tag is at the given position that ends with "cell",
+     * like "proposedcell"
+     *
+     * @return the class, or null if there is none
+     */
+    private static String getCellClass(String html, int tagStart) {
+        String classes = getAttribute(html, tagStart, "class");
+        if (classes != null) {
+            for (String c : classes.split(" ")) {
+                if (c.endsWith("cell")) {
+                    return c;
+                }
+            }
+        }
+        return null;
+    }
+
+    private final List<String> differences = new ArrayList<>();
+    private int differentRowCount = 0;
+    private final List<String> differentRowKeys = new ArrayList<>();
+    private final boolean frameDifferent;
+    private boolean outOfOrder = false;
+
+    /**
+     * Compare two tables
+     *
+     * @param expected the expected table
+     * @param actual the actual table
+     */
+    public SurveyDriverTableDiff(Table expected, Table actual) {
+        frameDifferent = expected.frameHash != actual.frameHash;
+        if (frameDifferent) {
+            differences.add(
+                    "outside rows: " + describeDifference(expected.frameHtml, actual.frameHtml));
+        }
+        List<String> expectedOrder = new ArrayList<>();
+        for (Row e : expected.rows) {
+            Row a = actual.rowsByKey.get(e.key);
+            if (a == null) {
+                differences.add("row " + e.key + " is missing");
+                ++differentRowCount;
+                continue;
+            }
+            expectedOrder.add(e.key);
+            if (e.hash != a.hash) {
+                ++differentRowCount;
+                differentRowKeys.add(a.key);
+                compareRows(e, a);
+            }
+        }
+        List<String> actualOrder = new ArrayList<>();
+        for (Row a : actual.rows) {
+            if (expected.rowsByKey.containsKey(a.key)) {
+                actualOrder.add(a.key);
+            } else {
+                differences.add("row " + a.key + " is unexpected");
+                ++differentRowCount;
+                differentRowKeys.add(a.key);
+            }
+        }
+        for (int i = 0; i < expectedOrder.size(); i++) {
+            if (!expectedOrder.get(i).equals(actualOrder.get(i))) {
+                differences.add(
+                        "rows are out of order: expected "
+                                + expectedOrder.get(i)
+                                + " at position "
+                                + i
+                                + ", got "
+                                + actualOrder.get(i));
+                outOfOrder = true;
+                break;
+            }
+        }
+    }
+
+    private void compareRows(Row e, Row a) {
+        if (e.html == null || a.html == null) {
+            differences.add("row " + e.key + " differs");
+            return;
+        }
+        final int differenceCount = differences.size();
+        Map<String, String> expectedCells = getCells(e.html);
+        Map<String, String> actualCells = getCells(a.html);
+        for (Map.Entry<String, String> entry : expectedCells.entrySet()) {
+            String cellKey = entry.getKey();
+            String actualCell = actualCells.get(cellKey);
+            if (actualCell == null) {
+                differences.add("row " + e.key + ", cell " + cellKey + " is missing");
+            } else if (!actualCell.equals(entry.getValue())) {
+                differences.add(
+                        "row "
+                                + e.key
+                                + ", cell "
+                                + cellKey
+                                + ": "
+                                + describeDifference(entry.getValue(), actualCell));
+            }
+        }
+        for (String cellKey : actualCells.keySet()) {
+            if (!expectedCells.containsKey(cellKey)) {
+                differences.add("row " + e.key + ", cell " + cellKey + " is unexpected");
+            }
+        }
+        if (expectedCells.keySet().equals(actualCells.keySet())
+                && !new ArrayList<>(expectedCells.keySet())
+                        .equals(new ArrayList<>(actualCells.keySet()))) {
+            differences.add("row " + e.key + ", cells are out of order");
+        }
+        if (differences.size() == differenceCount) {
+            differences.add("row " + e.key + " differs outside its cells");
+        }
+    }
+
+    /**
+     * Describe how two strings differ, showing only the part that differs and some context
+     *
+     * @return the description
+     */
+    private static String describeDifference(String expected, String actual) {
+        if (expected == null || actual == null) {
+            return "differs";
+        }
+        int max = Math.min(expected.length(), actual.length());
+        int prefix = 0;
+        while (prefix < max && expected.charAt(prefix) == actual.charAt(prefix)) {
+            ++prefix;
+        }
+        int suffix = 0;
+        while (suffix < max - prefix
+                && expected.charAt(expected.length() - 1 - suffix)
+                        == actual.charAt(actual.length() - 1 - suffix)) {
+            ++suffix;
+        }
+        return "expected "
+                + excerpt(expected, prefix, expected.length() - suffix)
+                + " got "
+                + excerpt(actual, prefix, actual.length() - suffix);
+    }
+
+    private static String excerpt(String s, int start, int end) {
+        int from = Math.max(0, start - CONTEXT_LENGTH);
+        int to = Math.min(s.length(), end + CONTEXT_LENGTH);
+        return (from > 0 ? "«…" : "«")
+                + s.substring(from, start)
+                + "[["
+                + ((end - start > MAX_DIFFERENCE_LENGTH)
+                        ? s.substring(start, start + MAX_DIFFERENCE_LENGTH) + "…"
+                        : s.substring(start, end))
+                + "]]"
+                + s.substring(end, to)
+                + (to < s.length() ? "…»" : "»");
+    }
+
+    /**
+     * The verdict depends only on the hashes (and row order), not on whether the difference could
+     * be described in terms of cells
+     *
+     * @return true if the tables are the same
+     */
+    public boolean isSame() {
+        return !frameDifferent && differentRowCount == 0 && !outOfOrder;
+    }
+
+    /**
+     * @return the number of rows that differ, are missing, or are unexpected
+     */
+    public int getDifferentRowCount() {
+        return differentRowCount;
+    }
+
+    /**
+     * @return the keys of the actual rows that differ or are unexpected
+     */
+    public List<String> getDifferentRowKeys() {
+        return differentRowKeys;
+    }
+
+    /**
+     * @return true if the tables differ outside their rows
+     */
+    public boolean isFrameDifferent() {
+        return frameDifferent;
+    }
+
+    /**
+     * @return descriptions of the differences, one per changed cell, missing or unexpected row,
+     *     etc.
+     */
+    public List<String> getDifferences() {
+        return differences;
+    }
+}
@@ -0,0 +1,330 @@
+package org.unicode.cldr.surveydriver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Normalize the html of a vetting table, so that snapshots can be compared without being tripped up
+ * by differences that vary at random and don't matter.
+ *
+ * <p>All the rules are applied in a single pass over the html, rather than one String.replace (or
+ * regex) pass per rule, each of which would copy the whole table. The next occurrence of the
+ * literal each rule starts with is found with String.indexOf, which is fast, and the text between
+ * matches is copied in bulk; if no rule matches anywhere, the (trimmed) input is returned without
+ * copying. Where rules could match at the same position, the first one in the list wins.
+ *
+ * <p>Removals compose as they did with successive String.replace passes: after each match, a
+ * literal rule (see Rule.isLiteral) may match across the boundary between the output so far and the
+ * rest of the html. For example, in "a pu-select hideCov80 b", removing "pu-select " leaves "a
+ * hideCov80 b", from which " hideCov80" is then removed, giving "a b". Replacement text is never
+ * matched again, though, and a match across a boundary is found whatever the order of the rules, so
+ * the result can still differ from the passes in contrived cases, like "fallback_ro hideCov80ot",
+ * which becomes "fallback" rather than "fallback_root".
+ */
+public class SurveyDriverTableNormalizer {
+
+    /** A rewrite that starts with a literal string */
+    public interface Rule {
+        /**
+         * @return the non-empty literal that any match must start with
+         */
+        String getStart();
+
+        /**
+         * Try to match at a position where getStart() has already been found
+         *
+         * @param s the html
+         * @param i the position of getStart() in s
+         * @param end the end of the part of s being normalized
+         * @param out where to append the replacement, if it matches
+         * @return the position following the match, or -1 if it doesn't match
+         */
+        int apply(String s, int i, int end, StringBuilder out);
+
+        /**
+         * @return true if the rule should only be applied to its first match
+         */
+        default boolean isOnce() {
+            return false;
+        }
+
+        /**
+         * @return true if every occurrence of getStart() is a match, replaced by the same text
+         *     whatever surrounds it, so that the rule can also match across the boundary where an
+         *     earlier match was removed (apply is then called with i where getStart() would begin,
+         *     though the html there doesn't contain all of it)
+         */
+        default boolean isLiteral() {
+            return false;
+        }
+
+        /**
+         * @return the rule as arguments for the in-page normalizer (see SurveyDriverTableSnapshot),
+         *     like ["replace", from, to], or null if the rule can only be applied in Java
+         */
+        default List<String> getScriptForm() {
+            return null;
+        }
+    }
+
+    /**
+     * Get a rule that replaces every occurrence of a literal string
+     *
+     * @param from the string to replace
+     * @param to the replacement
+     * @return the rule
+     */
+    public static Rule replace(String from, String to) {
+        return new Rule() {
+            @Override
+            public String getStart() {
+                return from;
+            }
+
+            @Override
+            public int apply(String s, int i, int end, StringBuilder out) {
+                out.append(to);
+                return i + from.length();
+            }
+
+            @Override
+            public boolean isLiteral() {
+                return true;
+            }
+
+            @Override
+            public List<String> getScriptForm() {
+                return List.of("replace", from, to);
+            }
+        };
+    }
+
+    /**
+     * Get a rule that removes every occurrence of a literal string
+     *
+     * @param s the string to remove
+     * @return the rule
+     */
+    public static Rule remove(String s) {
+        return replace(s, "");
+    }
+
+    /**
+     * Get a rule that removes the whitespace (as for regex \s) between the first occurrence of two
+     * literal strings, like replaceFirst("<tbody>\\s*<tr", "<tbody><tr") but without a regex
+     *
+     * @param before the string preceding the whitespace
+     * @param after the string following the whitespace
+     * @return the rule
+     */
+    public static Rule removeFirstWhitespaceBetween(String before, String after) {
+        return new Rule() {
+            @Override
+            public String getStart() {
+                return before;
+            }
+
+            @Override
+            public int apply(String s, int i, int end, StringBuilder out) {
+                int j = i + before.length();
+                while (j < end && isWhitespace(s.charAt(j))) {
+                    ++j;
+                }
+                if (j + after.length() > end || !s.startsWith(after, j)) {
+                    return -1;
+                }
+                out.append(before).append(after);
+                return j + after.length();
+            }
+
+            @Override
+            public boolean isOnce() {
+                return true;
+            }
+
+            @Override
+            public List<String> getScriptForm() {
+                return List.of("removeFirstWhitespaceBetween", before, after);
+            }
+        };
+    }
+
+    /** The same characters as \s in a java.util.regex.Pattern */
+    static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    /** The rules used for comparing vetting-table snapshots */
+    public static final List<Rule> VETTING_TABLE_RULES =
+            List.of(
+                    /*
+                     * For unknown reasons, html varies between class="fallback" and
+                     * class="fallback_root" for the same item. That may be a bug on the server
+                     * side. Work around it here by changing "fallback_root" to "fallback".
+                     */
+                    replace("fallback_root", "fallback"),
+                    removeFirstWhitespaceBetween("<tbody>", "<tr"), // whitespace varies at random
+                    remove(" hideCov80"), // present or absent at random?
+                    remove(" hideCov100"), // present or absent at random?
+                    remove("pu-select ")); // present or absent at random?
+
+    private static final SurveyDriverTableNormalizer vettingTable =
+            new SurveyDriverTableNormalizer(VETTING_TABLE_RULES);
+
+    private final Rule[] rules;
+
+    /**
+     * @param rules the rules, in order of priority
+     */
+    public SurveyDriverTableNormalizer(List<Rule> rules) {
+        this.rules = rules.toArray(new Rule[0]);
+        for (Rule rule : this.rules) {
+            if (rule.getStart().isEmpty()) {
+                throw new IllegalArgumentException("Rule has empty start: " + rule);
+            }
+        }
+    }
+
+    /**
+     * Get the normalizer for comparing vetting-table snapshots
+     *
+     * @return the normalizer using VETTING_TABLE_RULES
+     */
+    public static SurveyDriverTableNormalizer getVettingTable() {
+        return vettingTable;
+    }
+
+    /**
+     * Get the rules in the form used by the in-page normalizer
+     *
+     * @return the list of getScriptForm() of each rule, or null if any rule has none
+     */
+    public List<List<String>> getScriptRules() {
+        List<List<String>> scriptRules = new ArrayList<>();
+        for (Rule rule : rules) {
+            List<String> scriptForm = rule.getScriptForm();
+            if (scriptForm == null) {
+                return null;
+            }
+            scriptRules.add(scriptForm);
+        }
+        return scriptRules;
+    }
+
+    /**
+     * Normalize the html, applying all the rules and trimming whitespace from both ends
+     *
+     * @param html the html
+     * @return the normalized html
+     */
+    public String normalize(String html) {
+        int start = 0, end = html.length();
+        while (start < end && html.charAt(start) <= ' ') {
+            ++start;
+        }
+        while (end > start && html.charAt(end - 1) <= ' ') {
+            --end;
+        }
+        /*
+         * For each rule, the position of the next occurrence of its start, found with indexOf, or
+         * end if there is none (or if a once-only rule has been applied). The earliest one is tried
+         * next; a rule's position is searched again only when the scan has passed it.
+         */
+        final int ruleCount = rules.length;
+        int[] next = new int[ruleCount];
+        for (int r = 0; r < ruleCount; r++) {
+            next[r] = find(html, r, start, end);
+        }
+        StringBuilder out = null;
+        int copied = start; // html from start to copied has been appended to out
+        int floor = 0; // out before this ends with replacement text, which is not matched again
+        for (; ; ) {
+            int r = 0;
+            for (int k = 1; k < ruleCount; k++) {
+                if (next[k] < next[r]) {
+                    r = k;
+                }
+            }
+            if (ruleCount == 0 || next[r] >= end) {
+                break;
+            }
+            int i = next[r];
+            if (out == null) {
+                out = new StringBuilder(end - start);
+            }
+            int mark = out.length();
+            out.append(html, copied, i);
+            int textEnd = out.length();
+            int matchEnd = rules[r].apply(html, i, end, out);
+            if (matchEnd < 0) {
+                out.setLength(mark);
+                next[r] = find(html, r, i + 1, end);
+                continue;
+            }
+            if (out.length() > textEnd) {
+                floor = out.length();
+            }
+            copied = matchEnd;
+            if (rules[r].isOnce()) {
+                next[r] = end;
+            }
+            /*
+             * Apply any literal rule whose start now spans the boundary, ending k characters into
+             * the output; repeat, since that may make another such match
+             */
+            for (boolean again = true; again; ) {
+                again = false;
+                for (int b = 0; b < ruleCount && !again; b++) {
+                    if (!rules[b].isLiteral()) {
+                        continue;
+                    }
+                    String ruleStart = rules[b].getStart();
+                    for (int k = Math.min(ruleStart.length() - 1, out.length() - floor);
+                            k > 0;
+                            k--) {
+                        int rest = ruleStart.length() - k;
+                        if (copied + rest <= end
+                                && html.regionMatches(copied, ruleStart, k, rest)
+                                && endsWith(out, ruleStart, k)) {
+                            out.setLength(out.length() - k);
+                            int replacementStart = out.length();
+                            copied = rules[b].apply(html, copied - k, end, out);
+                            if (out.length() > replacementStart) {
+                                floor = out.length();
+                            }
+                            again = true;
+                            break;
+                        }
+                    }
+                }
+            }
+            for (int k = 0; k < ruleCount; k++) {
+                if (next[k] < copied) {
+                    next[k] = find(html, k, copied, end);
+                }
+            }
+        }
+        if (out == null) {
+            return html.substring(start, end);
+        }
+        return out.append(html, copied, end).toString();
+    }
+
+    /** Does out end with the first k characters of s? */
+    private static boolean endsWith(StringBuilder out, String s, int k) {
+        int offset = out.length() - k;
+        for (int j = 0; j < k; j++) {
+            if (out.charAt(offset + j) != s.charAt(j)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Find the next occurrence of the start of rules[r] in html, from i, or end if none */
+    private int find(String html, int r, int i, int end) {
+        String ruleStart = rules[r].getStart();
+        int pos = html.indexOf(ruleStart, i);
+        return (pos < 0 || pos + ruleStart.length() > end) ? end : pos;
+    }
+}
@@ -0,0 +1,245 @@
+package org.unicode.cldr.surveydriver;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+/**
+ * Take snapshots of the vetting table in the page, transferring only a hash for each row rather
+ * than the html of the whole table.
+ *
+ * <p>The script normalizes the table's outerHTML with the same rules as the Java normalizer (see
+ * SurveyDriverTableNormalizer.getScriptRules), splits it into rows and hashes them exactly as
+ * SurveyDriverTableDiff.Table.parse does, and returns the key and hash of each row, and the hash of
+ * the rest of the table. If that differs from the expected table, a second call returns the html of
+ * only the rows (and, if need be, the rest of the table) that differ, so that their cells can be
+ * compared and reported.
+ */
+public class SurveyDriverTableSnapshot {
+
+    private static final String SNAPSHOT_SCRIPT =
+            "var table = arguments[0], rules = arguments[1], wanted = new Set(arguments[2]),\n"
+                    + "    wantFrame = arguments[3];\n"
+                    + "var isSpace = function (c) { return c === 32 || (c >= 9 && c <= 13); };\n"
+                    + "var hash = function (s, start, end) {\n"
+                    + "  var h = 0x811c9dc5 | 0;\n"
+                    + "  for (var i = start; i < end; i++) {\n"
+                    + "    h = Math.imul(h ^ s.charCodeAt(i), 0x01000193);\n"
+                    + "  }\n"
+                    + "  return [end - start, h >>> 0];\n"
+                    + "};\n"
+                    + "var normalize = function (html) {\n"
+                    + "  var start = 0, end = html.length;\n"
+                    + "  while (start < end && html.charCodeAt(start) <= 32) { start++; }\n"
+                    + "  while (end > start && html.charCodeAt(end - 1) <= 32) { end--; }\n"
+                    + "  var find = function (r, i) {\n"
+                    + "    var p = html.indexOf(rules[r][1], i);\n"
+                    + "    return (p < 0 || p + rules[r][1].length > end) ? end : p;\n"
+                    + "  };\n"
+                    + "  var apply = function (rule, i) {\n"
+                    + "    if (rule[0] === 'replace') {\n"
+                    + "      return {text: rule[2], end: i + rule[1].length};\n"
+                    + "    }\n"
+                    + "    if (rule[0] !== 'removeFirstWhitespaceBetween') {\n"
+                    + "      throw new Error('Unknown rule ' + rule[0]);\n"
+                    + "    }\n"
+                    + "    var j = i + rule[1].length;\n"
+                    + "    while (j < end && isSpace(html.charCodeAt(j))) { j++; }\n"
+                    + "    if (j + rule[2].length > end || !html.startsWith(rule[2], j)) {\n"
+                    + "      return null;\n"
+                    + "    }\n"
+                    + "    return {text: rule[1] + rule[2], end: j + rule[2].length, once: true};\n"
+                    + "  };\n"
+                    + "  var next = rules.map(function (rule, r) { return find(r, start); });\n"
+                    + "  var out = [], outLength = 0, copied = start, floor = 0;\n"
+                    + "  var push = function (t) {\n"
+                    + "    if (t.length > 0) { out.push(t); outLength += t.length; }\n"
+                    + "  };\n"
+                    + "  var tail = function (n) {\n"
+                    + "    var t = '';\n"
+                    + "    for (var p = out.length - 1; p >= 0 && t.length < n; p--) {\n"
+                    + "      t = out[p].slice(-(n - t.length)) + t;\n"
+                    + "    }\n"
+                    + "    return t;\n"
+                    + "  };\n"
+                    + "  var trim = function (n) {\n"
+                    + "    outLength -= n;\n"
+                    + "    while (n > 0) {\n"
+                    + "      var last = out.pop();\n"
+                    + "      if (last.length > n) { out.push(last.substring(0, last.length - n)); n = 0; }\n"
+                    + "      else { n -= last.length; }\n"
+                    + "    }\n"
+                    + "  };\n"
+                    + "  for (;;) {\n"
+                    + "    var r = 0, k;\n"
+                    + "    for (k = 1; k < rules.length; k++) { if (next[k] < next[r]) { r = k; } }\n"
+                    + "    if (rules.length === 0 || next[r] >= end) { break; }\n"
+                    + "    var i = next[r], m = apply(rules[r], i);\n"
+                    + "    if (!m) { next[r] = find(r, i + 1); continue; }\n"
+                    + "    push(html.substring(copied, i));\n"
+                    + "    if (m.text.length > 0) { push(m.text); floor = outLength; }\n"
+                    + "    copied = m.end;\n"
+                    + "    if (m.once) { next[r] = end; }\n"
+                    + "    for (var again = true; again; ) {\n"
+                    + "      again = false;\n"
+                    + "      for (var b = 0; b < rules.length && !again; b++) {\n"
+                    + "        if (rules[b][0] !== 'replace') { continue; }\n"
+                    + "        var from = rules[b][1], t = tail(from.length - 1);\n"
+                    + "        for (var n = Math.min(from.length - 1, outLength - floor); n > 0; n--) {\n"
+                    + "          var rest = from.length - n;\n"
+                    + "          if (copied + rest <= end && html.startsWith(from.substring(n), copied)\n"
+                    + "              && t.endsWith(from.substring(0, n))) {\n"
+                    + "            trim(n);\n"
+                    + "            if (rules[b][2].length > 0) { push(rules[b][2]); floor = outLength; }\n"
+                    + "            copied += rest;\n"
+                    + "            again = true;\n"
+                    + "            break;\n"
+                    + "          }\n"
+                    + "        }\n"
+                    + "      }\n"
+                    + "    }\n"
+                    + "    for (k = 0; k < rules.length; k++) {\n"
+                    + "      if (next[k] < copied) { next[k] = find(k, copied); }\n"
+                    + "    }\n"
+                    + "  }\n"
+                    + "  push(html.substring(copied, end));\n"
+                    + "  return out.join('');\n"
+                    + "};\n"
+                    + "var indexOfTag = function (html, open, from) {\n"
+                    + "  var i = from;\n"
+                    + "  while ((i = html.indexOf(open, i)) >= 0) {\n"
+                    + "    var after = i + open.length;\n"
+                    + "    if (after < html.length) {\n"
+                    + "      var c = html.charCodeAt(after);\n"
+                    + "      if (c === 62 || isSpace(c)) { return i; }\n"
+                    + "    }\n"
+                    + "    i = after;\n"
+                    + "  }\n"
+                    + "  return -1;\n"
+                    + "};\n"
+                    + "var getAttribute = function (html, tagStart, name) {\n"
+                    + "  var tagEnd = html.indexOf('>', tagStart);\n"
+                    + "  if (tagEnd < 0) { return null; }\n"
+                    + "  var attr = ' ' + name + '=\"', i = html.indexOf(attr, tagStart);\n"
+                    + "  if (i < 0 || i > tagEnd) { return null; }\n"
+                    + "  i += attr.length;\n"
+                    + "  var end = html.indexOf('\"', i);\n"
+                    + "  return (end < 0 || end > tagEnd) ? null : html.substring(i, end);\n"
+                    + "};\n"
+                    + "var html = normalize(table.outerHTML);\n"
+                    + "var rows = [], keyCounts = new Map(), frame = [], i = 0, rowStart;\n"
+                    + "while ((rowStart = indexOfTag(html, '<tr', i)) >= 0) {\n"
+                    + "  var rowEnd = html.indexOf('</tr>', rowStart);\n"
+                    + "  if (rowEnd < 0) { break; }\n"
+                    + "  rowEnd += 5;\n"
+                    + "  frame.push(html.substring(i, rowStart));\n"
+                    + "  var id = getAttribute(html, rowStart, 'id');\n"
+                    + "  var key = (id === null) ? '#' + rows.length : id;\n"
+                    + "  var n = (keyCounts.get(key) || 0) + 1;\n"
+                    + "  keyCounts.set(key, n);\n"
+                    + "  if (n > 1) { key += '#' + (n - 1); }\n"
+                    + "  var row = [key].concat(hash(html, rowStart, rowEnd));\n"
+                    + "  if (wanted.has(key)) { row.push(html.substring(rowStart, rowEnd)); }\n"
+                    + "  rows.push(row);\n"
+                    + "  i = rowEnd;\n"
+                    + "}\n"
+                    + "frame.push(html.substring(i));\n"
+                    + "var frameHtml = frame.join('');\n"
+                    + "var result = {rows: rows, frame: hash(frameHtml, 0, frameHtml.length)};\n"
+                    + "if (wantFrame) { result.frameHtml = frameHtml; }\n"
+                    + "return result;";
+
+    private final WebDriver driver;
+    private final SurveyDriverTableNormalizer normalizer;
+    private final List<List<String>> scriptRules;
+
+    /**
+     * @param driver the driver
+     * @param normalizer the normalizer, whose rules are also applied in the page if they all have a
+     *     script form; otherwise the whole outerHTML is transferred and normalized here
+     */
+    public SurveyDriverTableSnapshot(WebDriver driver, SurveyDriverTableNormalizer normalizer) {
+        this.driver = driver;
+        this.normalizer = normalizer;
+        this.scriptRules = normalizer.getScriptRules();
+    }
+
+    /**
+     * Compare the table in the page with the expected table, transferring the html of only the rows
+     * that differ
+     *
+     * @param tableEl the table element
+     * @param expected the expected table
+     * @return the comparison, or null for failure
+     */
+    public SurveyDriverTableDiff compare(WebElement tableEl, SurveyDriverTableDiff.Table expected) {
+        if (scriptRules == null) {
+            return new SurveyDriverTableDiff(
+                    expected,
+                    SurveyDriverTableDiff.Table.parse(
+                            normalizer.normalize(tableEl.getAttribute("outerHTML"))));
+        }
+        SurveyDriverTableDiff.Table actual = take(tableEl, List.of(), false);
+        if (actual == null) {
+            return null;
+        }
+        SurveyDriverTableDiff diff = new SurveyDriverTableDiff(expected, actual);
+        if (diff.isSame()) {
+            return diff;
+        }
+        actual = take(tableEl, diff.getDifferentRowKeys(), diff.isFrameDifferent());
+        return (actual == null) ? null : new SurveyDriverTableDiff(expected, actual);
+    }
+
+    /**
+     * Get the row hashes of the table in the page, and the html of some of the rows
+     *
+     * @param tableEl the table element
+     * @param htmlRowKeys the keys of the rows whose html is wanted
+     * @param withFrameHtml true if the html outside the rows is wanted
+     * @return the table, with html only where wanted, or null for failure
+     */
+    public SurveyDriverTableDiff.Table take(
+            WebElement tableEl, Collection<String> htmlRowKeys, boolean withFrameHtml) {
+        Object result;
+        try {
+            result =
+                    ((JavascriptExecutor) driver)
+                            .executeScript(
+                                    SNAPSHOT_SCRIPT,
+                                    tableEl,
+                                    scriptRules,
+                                    new ArrayList<>(htmlRowKeys),
+                                    withFrameHtml);
+        } catch (Exception e) {
+            SurveyDriverLog.println("Exception taking table snapshot; " + e);
+            return null;
+        }
+        if (!(result instanceof Map)) {
+            SurveyDriverLog.println("Table snapshot script returned " + result);
+            return null;
+        }
+        Map<?, ?> map = (Map<?, ?>) result;
+        List<SurveyDriverTableDiff.Row> rows = new ArrayList<>();
+        for (Object o : (List<?>) map.get("rows")) {
+            List<?> row = (List<?>) o;
+            rows.add(
+                    new SurveyDriverTableDiff.Row(
+                            (String) row.get(0),
+                            toHash(row.get(1), row.get(2)),
+                            (row.size() > 3) ? (String) row.get(3) : null));
+        }
+        List<?> frame = (List<?>) map.get("frame");
+        return new SurveyDriverTableDiff.Table(
+                toHash(frame.get(0), frame.get(1)), (String) map.get("frameHtml"), rows);
+    }
+
+    /** Combine the length and FNV-1a hash returned by the script, as SurveyDriverTableDiff.hash */
+    private static long toHash(Object length, Object fnv) {
+        return (((Number) length).longValue() << 32) | ((Number) fnv).longValue();
+    }
+}
@@ -0,0 +1,106 @@
+package org.unicode.cldr.surveydriver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import org.junit.Test;
+
+/** Tests of vetting-table comparison that don't need a browser or a Survey Tool server */
+public class SurveyDriverTableTest {
+
+    private static SurveyDriverTableDiff diff(String expectedHtml, String actualHtml) {
+        return new SurveyDriverTableDiff(
+                SurveyDriverTableDiff.Table.parse(expectedHtml),
+                SurveyDriverTableDiff.Table.parse(actualHtml));
+    }
+
+    @Test
+    public void diffSameTable() {
+        String html =
+                "<table><tbody><tr id=\"r@a\"><td class=\"xcell\">1</td></tr></tbody></table>";
+        SurveyDriverTableDiff d = diff(html, html);
+        assertTrue(d.isSame());
+        assertEquals(0, d.getDifferentRowCount());
+        assertTrue(d.getDifferences().isEmpty());
+    }
+
+    @Test
+    public void diffChangedCell() {
+        SurveyDriverTableDiff d =
+                diff(
+                        "<table><tr id=\"r@a\"><td class=\"xcell\">1</td></tr></table>",
+                        "<table><tr id=\"r@a\"><td class=\"xcell\">2</td></tr></table>");
+        assertFalse(d.isSame());
+        assertEquals(1, d.getDifferentRowCount());
+        assertEquals(1, d.getDifferences().size());
+        assertTrue(d.getDifferences().get(0).startsWith("row r@a, cell xcell: "));
+    }
+
+    /** A row whose hash differs must fail even if none of its cells differ */
+    @Test
+    public void diffChangeOutsideCells() {
+        SurveyDriverTableDiff d =
+                diff(
+                        "<table><tr id=\"r@a\"><td class=\"xcell\">1</td></tr></table>",
+                        "<table><tr id=\"r@a\"><td class=\"xcell\">1</td>STRAY</tr></table>");
+        assertFalse(d.isSame());
+        assertEquals(1, d.getDifferentRowCount());
+        assertEquals("row r@a differs outside its cells", String.join("\n", d.getDifferences()));
+    }
+
+    @Test
+    public void diffRowOrder() {
+        String a = "<tr id=\"r@a\"><td>1</td></tr>";
+        String b = "<tr id=\"r@b\"><td>2</td></tr>";
+        SurveyDriverTableDiff d =
+                diff("<table>" + a + b + "</table>", "<table>" + b + a + "</table>");
+        assertFalse(d.isSame());
+        assertEquals(0, d.getDifferentRowCount());
+    }
+
+    /** The normalization formerly done by SurveyDriverVettingTable, one pass per rule */
+    private static String normalizeWithReplace(String html) {
+        return html.replace("fallback_root", "fallback")
+                .replaceFirst("<tbody>\\s*<tr", "<tbody><tr")
+                .replace(" hideCov80", "")
+                .replace(" hideCov100", "")
+                .replace("pu-select ", "")
+                .trim();
+    }
+
+    @Test
+    public void normalizeSameAsReplace() throws IOException {
+        SurveyDriverTableNormalizer normalizer = SurveyDriverTableNormalizer.getVettingTable();
+        for (int t = 0; t < 3; t++) {
+            String html = Files.readString(Paths.get("data", "table" + t + ".txt"));
+            assertEquals("table" + t, normalizeWithReplace(html), normalizer.normalize(html));
+        }
+    }
+
+    /** Matches that overlap, so that one removal makes (or breaks) another match */
+    @Test
+    public void normalizeOverlapping() {
+        SurveyDriverTableNormalizer normalizer = SurveyDriverTableNormalizer.getVettingTable();
+        String[] cases = {
+            "<tr class=\"vother pu-select hideCov80 x\">",
+            "<tr class=\"vother hideCov80 pu-select x\">",
+            "<tr class=\"vother pu-select hideCov80 hideCov100 x\">",
+            "<tr class=\"vother pu-select pu-select  hideCov100 x\">",
+            "<tbody>\n <tr class=\"a hideCov80 hideCov80\"><td class=\"fallback_root\">",
+            " <tbody> <tbody>\t<tr> hideCov100 ",
+            "",
+        };
+        for (String html : cases) {
+            assertEquals(html, normalizeWithReplace(html), normalizer.normalize(html));
+        }
+        /*
+         * A match across a boundary is found whatever the order of the rules, unlike with the
+         * passes, which only find it for rules after the removal's
+         */
+        assertEquals("fallback", normalizer.normalize("fallback_ro hideCov80ot"));
+    }
+}
@@ -0,0 +1,135 @@
+package org.unicode.cldr.surveydriver;
+
+import java.util.Map;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Detect when the vetting table has been rebuilt and has stopped changing.
+ *
+ * <p>Survey Tool calls window.testTable (if defined) whenever it builds or updates the vetting
+ * table. We define that function so that it also counts the updates (the "table version") and
+ * remembers when the latest one happened. Waiting for the version to increase, and then for a short
+ * quiet period with no further updates, replaces a fixed sleep before each table snapshot.
+ */
+public class SurveyDriverTableWatcher {
+
+    /**
+     * The table is considered settled when it hasn't been updated for this long. Several updates
+     * may follow a single vote, for example when the server's response arrives.
+     */
+    static final long QUIET_MILLISECONDS = 500;
+
+    /** How often the page checks the version while waiting; no WebDriver round trips involved */
+    private static final long CHECK_INTERVAL_MILLISECONDS = 20;
+
+    private static final String INSTALL_SCRIPT =
+            "window.surveyDriverTable = window.surveyDriverTable || {version: 0, time: 0};\n"
+                    + "window.testTable = function (theTable, reuseTable) {\n"
+                    + "  console.log(theTable.json);\n"
+                    + "  var s = window.surveyDriverTable;\n"
+                    + "  s.version++;\n"
+                    + "  s.time = performance.timeOrigin + performance.now();\n"
+                    + "};";
+
+    private static final String WAIT_SCRIPT =
+            "var after = arguments[0], quietMs = arguments[1], timeoutMs = arguments[2],\n"
+                    + "    intervalMs = arguments[3], done = arguments[arguments.length - 1];\n"
+                    + "var now = function () { return performance.timeOrigin + performance.now(); };\n"
+                    + "var start = now();\n"
+                    + "var check = function () {\n"
+                    + "  var s = window.surveyDriverTable, t = now();\n"
+                    + "  if (!s) { done(null); return; }\n"
+                    + "  if (s.version > after && t - s.time >= quietMs) {\n"
+                    + "    done({ok: true, version: s.version, age: t - s.time}); return;\n"
+                    + "  }\n"
+                    + "  if (t - start >= timeoutMs) { done({ok: false, version: s.version}); return; }\n"
+                    + "  setTimeout(check, intervalMs);\n"
+                    + "};\n"
+                    + "check();";
+
+    private final WebDriver driver;
+    private final long timeoutMillis;
+
+    /** For the most recent successful wait, the milliseconds from sinceNanos to the last update */
+    private double lastSettleMillis = 0;
+
+    /**
+     * @param driver the driver; its script timeout must be longer than timeoutMillis
+     * @param timeoutMillis how long to wait for the table to be updated before giving up
+     */
+    public SurveyDriverTableWatcher(WebDriver driver, long timeoutMillis) {
+        this.driver = driver;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Define window.testTable in the current page. Call this after the page has loaded.
+     *
+     * @return true for success, false for failure
+     */
+    public boolean install() {
+        try {
+            ((JavascriptExecutor) driver).executeScript(INSTALL_SCRIPT);
+        } catch (Exception e) {
+            SurveyDriverLog.println("Unable to install table watcher; " + e);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Wait until the table version is greater than the given version, and the table has not been
+     * updated for QUIET_MILLISECONDS.
+     *
+     * @param afterVersion the version before the action expected to update the table, such as a
+     *     click; or -1 to wait only for the quiet period
+     * @param sinceNanos the time of that action, from System.nanoTime(), for measuring how long the
+     *     table took to settle
+     * @return the new table version, or -1 for failure (not installed, or timed out)
+     */
+    public long waitUntilSettled(long afterVersion, long sinceNanos) {
+        Object result;
+        try {
+            result =
+                    ((JavascriptExecutor) driver)
+                            .executeAsyncScript(
+                                    WAIT_SCRIPT,
+                                    afterVersion,
+                                    QUIET_MILLISECONDS,
+                                    timeoutMillis,
+                                    CHECK_INTERVAL_MILLISECONDS);
+        } catch (Exception e) {
+            SurveyDriverLog.println("Exception waiting for table to settle; " + e);
+            return -1;
+        }
+        if (!(result instanceof Map)) {
+            SurveyDriverLog.println("Table watcher is not installed");
+            return -1;
+        }
+        Map<?, ?> map = (Map<?, ?>) result;
+        if (!Boolean.TRUE.equals(map.get("ok"))) {
+            SurveyDriverLog.println(
+                    "Timed out waiting for table version > "
+                            + afterVersion
+                            + "; version is "
+                            + map.get("version"));
+            return -1;
+        }
+        /*
+         * The age is how long before the script returned the table was last updated, so the
+         * table settled that long before we got the result
+         */
+        double elapsedMillis = (System.nanoTime() - sinceNanos) / 1e6;
+        lastSettleMillis = Math.max(0, elapsedMillis - ((Number) map.get("age")).doubleValue());
+        return ((Number) map.get("version")).longValue();
+    }
+
+    /**
+     * @return the milliseconds from the sinceNanos of the most recent successful waitUntilSettled
+     *     until the last table update it saw
+     */
+    public double getLastSettleMillis() {
+        return lastSettleMillis;
+    }
+}
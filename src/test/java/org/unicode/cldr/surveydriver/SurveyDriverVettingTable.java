@@ -3,10 +3,9 @@ package org.unicode.cldr.surveydriver;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
 import org.openqa.selenium.By;
-import org.openqa.selenium.JavascriptExecutor;
 import org.openqa.selenium.Keys;
-import org.openqa.selenium.StaleElementReferenceException;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.interactions.Actions;
@@ -30,26 +29,23 @@ public class SurveyDriverVettingTable {
         String url = SurveyDriver.BASE_URL + "v#/" + loc + "/" + page;
 
         WebDriver driver = s.driver;
+        final long loadStartTime = System.nanoTime();
         driver.get(url);
-        if (!s.waitForTitle(page, url)) {
+        s.rowCache.clear();
+        SurveyDriverReadiness readiness =
+                s.newReadiness().title(page).loaded().sidebarHidden().overlayInactive();
+        if (!s.waitUntilPageReady(readiness, url, loadStartTime, loc, page)) {
             return false;
         }
-        if (!s.waitUntilLoadingMessageDone(url)) {
-            return false;
-        }
-        if (!s.hideLeftSidebar(url)) {
-            return false;
-        }
-        if (!s.waitUntilElementInactive("left-sidebar", url)) {
-            return false;
-        }
-        if (!s.waitUntilElementInactive("overlay", url)) {
+
+        SurveyDriverTableWatcher tableWatcher =
+                new SurveyDriverTableWatcher(
+                        driver, TimeUnit.SECONDS.toMillis(SurveyDriver.TIME_OUT_SECONDS));
+        if (!tableWatcher.install()) {
             return false;
         }
-
-        JavascriptExecutor js = (JavascriptExecutor) driver;
-        js.executeScript(
-                "window.testTable = function(theTable, reuseTable) { console.log(theTable.json); }");
+        long tableVersion = -1;
+        long clickTime = System.nanoTime();
 
         /*
          * Get the table three times.
@@ -59,6 +55,7 @@ public class SurveyDriverVettingTable {
          * Finally, abstain so the next user will find the db the same as it was.
          */
         String[] table = {null, null, null};
+        SurveyDriverTableDiff.Table[] expectedTable = {null, null, null};
         final int tableCount = 3;
         String dataDirName;
         try {
@@ -68,22 +65,25 @@ public class SurveyDriverVettingTable {
             e1.printStackTrace();
             return false;
         }
+        SurveyDriverTableNormalizer normalizer = SurveyDriverTableNormalizer.getVettingTable();
         for (int t = 0; t < tableCount; t++) {
             String fName = dataDirName + "/" + "table" + t + ".txt";
             File f = new File(fName);
             try {
-                table[t] = normalizeTable(Files.readString(f.toPath()));
+                table[t] = normalizer.normalize(Files.readString(f.toPath()));
             } catch (IOException e) {
                 SurveyDriverLog.println("Exception reading file " + fName + ": " + e);
                 e.printStackTrace();
                 return false;
             }
+            expectedTable[t] = SurveyDriverTableDiff.Table.parse(table[t]);
             if (t > 0 && table[t].equals(table[t - 1])) {
                 SurveyDriverLog.println(
                         "File " + fName + " should not be identical to the previous file");
                 return false;
             }
         }
+        SurveyDriverTableSnapshot snapshot = new SurveyDriverTableSnapshot(driver, normalizer);
         String[] cellClasses = {"proposedcell", "input", "nocell"};
         String rowId = "r@7b8ee7884f773afa";
         int i = 0;
@@ -104,15 +104,19 @@ public class SurveyDriverVettingTable {
             new Actions(driver).moveToElement(titleLocaleEl, 0, 0).build().perform();
 
             /*
-             * Sleep a while to give the table time to update. 5 seconds is enough. 2 seconds is not enough.
-             * TODO: find a better way to detect when the table has been updated.
+             * Wait for the table to be updated following the click (if any), and then to stop
+             * changing. Formerly this was a five-second sleep (two seconds was not enough).
              */
-            try {
-                Thread.sleep(5000);
-            } catch (Exception e) {
+            tableVersion = tableWatcher.waitUntilSettled(tableVersion, clickTime);
+            if (tableVersion < 0) {
                 SurveyDriverLog.println(
-                        "Sleep interrupted before finished waiting to get table html; " + e);
+                        "❌ Vetting-table test failed, table never settled in " + url);
+                return false;
             }
+            s.rowCache.clear(); // the table has been updated, so its elements may be replaced
+            s.latency.recordMicros(
+                    SurveyDriverLatency.key("table-settle", loc, page),
+                    Math.round(tableWatcher.getLastSettleMillis() * 1000));
 
             /*
              * Wait for tr_checking2 element (temporary green background) NOT to exist.
@@ -123,104 +127,53 @@ public class SurveyDriverVettingTable {
             if (!s.waitUntilClassExists("tr_checking2", false, url)) {
                 return false;
             }
-            String tableHtml = normalizeTable(tableEl.getAttribute("outerHTML"));
-
-            if (table[i].equals(tableHtml)) {
+            SurveyDriverTableDiff diff;
+            if (SurveyDriver.USE_TABLE_ROW_HASHES) {
+                diff = snapshot.compare(tableEl, expectedTable[i]);
+                if (diff == null) {
+                    SurveyDriverLog.println(
+                            "❌ Vetting-table test failed, no snapshot of table "
+                                    + i
+                                    + " in "
+                                    + url);
+                    return false;
+                }
+            } else {
+                String tableHtml = normalizer.normalize(tableEl.getAttribute("outerHTML"));
+                diff =
+                        new SurveyDriverTableDiff(
+                                expectedTable[i], SurveyDriverTableDiff.Table.parse(tableHtml));
+            }
+            if (diff.isSame()) {
                 SurveyDriverLog.println("✅ table " + i + " is OK");
                 ++goodTableCount;
             } else {
                 SurveyDriverLog.println(
                         "❌ table "
                                 + i
-                                + " is different ("
-                                + tableHtml.length()
-                                + " units):\n"
-                                + tableHtml
-                                + "\n\nExpected ("
-                                + table[i].length()
-                                + " units):\n"
-                                + table[i]
+                                + " is different, "
+                                + diff.getDifferentRowCount()
+                                + " of "
+                                + expectedTable[i].getRowCount()
+                                + " rows:\n"
+                                + String.join("\n", diff.getDifferences())
                                 + "\n");
             }
             ++i;
             boolean doAdd = cell.equals("input");
             String tagName = doAdd ? "button" : "input";
             String cellClass = doAdd ? "addcell" : cell;
-            WebElement rowEl = null, columnEl, clickEl = null;
-
-            int repeats = 0;
-            for (; ; ) {
-                try {
-                    rowEl = driver.findElement(By.id(rowId));
-                } catch (StaleElementReferenceException e) {
-                    if (++repeats > 4) {
-                        break;
-                    }
-                    SurveyDriverLog.println(
-                            "Continuing after StaleElementReferenceException for findElement by id rowId "
-                                    + rowId
-                                    + " for "
-                                    + url);
-                    continue;
-                } catch (Exception e) {
-                    SurveyDriverLog.println(e);
-                    break;
-                }
-                if (rowEl == null) {
-                    SurveyDriverLog.println(
-                            "❌ Vetting-table test failed, missing row id " + rowId + " for " + url);
-                    return false;
-                }
-                try {
-                    columnEl = rowEl.findElement(By.className(cellClass));
-                } catch (StaleElementReferenceException e) {
-                    if (++repeats > 4) {
-                        break;
-                    }
-                    SurveyDriverLog.println(
-                            "Continuing after StaleElementReferenceException for findElement by class cellClass "
-                                    + cellClass
-                                    + " for "
-                                    + url);
-                    continue;
-                } catch (Exception e) {
-                    SurveyDriverLog.println(e);
-                    break;
-                }
-                if (columnEl == null) {
-                    SurveyDriverLog.println(
-                            "❌ Vetting-table test failed, no column "
-                                    + cellClass
-                                    + " for row "
-                                    + rowId
-                                    + " for "
-                                    + url);
-                    return false;
-                }
-                try {
-                    clickEl = columnEl.findElement(By.tagName(tagName));
-                } catch (StaleElementReferenceException e) {
-                    if (++repeats > 4) {
-                        break;
-                    }
-                    SurveyDriverLog.println(
-                            "Continuing after StaleElementReferenceException for findElement by tagName "
-                                    + rowId
-                                    + " for "
-                                    + url);
-                    continue;
-                } catch (Exception e) {
-                    SurveyDriverLog.println(e);
-                    break;
-                }
-                break;
-            }
+            WebElement clickEl = s.findRowCellTagElement(rowId, cellClass, tagName);
             if (clickEl == null) {
                 SurveyDriverLog.println(
-                        "❌ Vetting-table test failed, no tag "
-                                + tagName
-                                + " for row "
+                        "❌ Vetting-table test failed, no "
+                                + s.rowCache.getLastMissing()
+                                + " for "
                                 + rowId
+                                + ","
+                                + cellClass
+                                + ","
+                                + tagName
                                 + " for "
                                 + url);
                 return false;
@@ -241,36 +194,21 @@ public class SurveyDriverVettingTable {
                                 + url);
                 return false;
             }
-            try {
-                s.clickOnRowCellTagElement(clickEl, rowId, cellClass, tagName, url);
-            } catch (StaleElementReferenceException e) {
-                if (++repeats > 4) {
-                    break;
-                }
-                SurveyDriverLog.println(
-                        "Continuing after StaleElementReferenceException for clickEl.click for row "
-                                + rowId
-                                + " for "
-                                + url);
-                continue;
-            } catch (Exception e) {
-                SurveyDriverLog.println(e);
-                SurveyDriverLog.println(
-                        "❌ Vetting-table test failed, clickEl.click for row "
-                                + rowId
-                                + " for "
-                                + url);
-                return false;
-            }
+            clickTime = System.nanoTime();
+            s.clickOnRowCellTagElement(clickEl, rowId, cellClass, tagName, url);
             if (doAdd) {
                 /*
                  * Problem here: waitInputBoxAppears can get StaleElementReferenceException five times,
                  * must be for rowEl which isn't re-gotten. For now at least, just continue loop if
-                 * waitInputBoxAppears returns null.
+                 * waitInputBoxAppears returns null. Then no vote is sent and the table won't be
+                 * rebuilt, so the next wait is only for it to be quiet (any version after -1);
+                 * otherwise it would time out and the final abstain would be skipped.
                  */
-                WebElement inputEl = s.waitInputBoxAppears(rowEl, url);
+                WebElement rowEl = s.findRowCellTagElement(rowId, null, null);
+                WebElement inputEl = (rowEl == null) ? null : s.waitInputBoxAppears(rowEl, url);
                 if (inputEl == null) {
                     SurveyDriverLog.println("Warning: continuing, didn't see input box for " + url);
+                    tableVersion = -1;
                     continue;
                 }
                 inputEl =
@@ -279,6 +217,7 @@ public class SurveyDriverVettingTable {
                 if (inputEl == null) {
                     SurveyDriverLog.println(
                             "Warning: continuing, input box not clickable for " + url);
+                    tableVersion = -1;
                     continue;
                 }
                 inputEl.clear();
@@ -292,25 +231,8 @@ public class SurveyDriverVettingTable {
             SurveyDriverLog.println("❌ Vetting-table test failed for " + loc + ", " + page);
             return false;
         }
+        s.latency.report("for vetting table, " + loc + ", " + page);
         SurveyDriverLog.println("✅ Vetting-table test passed for " + loc + ", " + page);
         return true;
     }
-
-    private static String normalizeTable(String tableHtml) {
-        /*
-         * For unknown reasons, html varies between class="fallback" and class="fallback_root" for the same item.
-         * That may be a bug on the server side.
-         * Work around it here by changing "fallback_root" to "fallback".
-         */
-        tableHtml = tableHtml.replace("fallback_root", "fallback");
-        tableHtml =
-                tableHtml.replaceFirst(
-                        "<tbody>\\s*<tr", "<tbody><tr"); // whitespace varies here at random
-
-        tableHtml = tableHtml.replace(" hideCov80", ""); // present or absent at random?
-        tableHtml = tableHtml.replace(" hideCov100", ""); // present or absent at random?
-        tableHtml = tableHtml.replace("pu-select ", ""); // present or absent at random?
-
-        return tableHtml.trim();
-    }
 }
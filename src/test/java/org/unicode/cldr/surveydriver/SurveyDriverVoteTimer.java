@@ -0,0 +1,155 @@
+package org.unicode.cldr.surveydriver;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Measure how long each voting operation takes, from the click (or the Return key for a new value)
+ * until the row's temporary "tr_checking2" class goes away.
+ *
+ * <p>The times are recorded inside the browser, by a capturing event listener and a
+ * MutationObserver, so the measurements are not distorted by WebDriver round trips, and the clicks
+ * can still be made as fast as possible without waiting for each row in turn.
+ */
+public class SurveyDriverVoteTimer {
+
+    /*
+     * Install the listeners once per document; reset the recorded operations every time.
+     * A start is recorded for a click on a non-text input (Abstain or Vote) or for Return
+     * in the text input of the addcell; the matching end is the first time after that start
+     * when the row is seen without tr_checking2.
+     */
+    private static final String INSTALL_SCRIPT =
+            "var s = window.surveyDriverVoteTimer;\n"
+                    + "if (!s) {\n"
+                    + "  s = window.surveyDriverVoteTimer = {};\n"
+                    + "  var now = function () { return performance.timeOrigin + performance.now(); };\n"
+                    + "  var rowOf = function (el) {\n"
+                    + "    return el && el.closest ? el.closest('tr[id]') : null;\n"
+                    + "  };\n"
+                    + "  var start = function (el) {\n"
+                    + "    var tr = rowOf(el);\n"
+                    + "    if (tr) { (s.pending[tr.id] = s.pending[tr.id] || []).push(now()); }\n"
+                    + "  };\n"
+                    + "  var settle = function (tr) {\n"
+                    + "    var starts = tr && s.pending[tr.id];\n"
+                    + "    if (!starts || tr.querySelector('.tr_checking2')\n"
+                    + "        || tr.classList.contains('tr_checking2')) { return; }\n"
+                    + "    var t = now();\n"
+                    + "    starts.forEach(function (t0) { s.done.push({row: tr.id, start: t0, end: t}); });\n"
+                    + "    delete s.pending[tr.id];\n"
+                    + "  };\n"
+                    + "  document.addEventListener('click', function (e) {\n"
+                    + "    var t = e.target;\n"
+                    + "    if (t && t.tagName === 'INPUT' && t.type !== 'text') { start(t); }\n"
+                    + "  }, true);\n"
+                    + "  document.addEventListener('keydown', function (e) {\n"
+                    + "    if (e.key === 'Enter') { start(e.target); }\n"
+                    + "  }, true);\n"
+                    + "  new MutationObserver(function (mutations) {\n"
+                    + "    mutations.forEach(function (m) {\n"
+                    + "      if (m.type === 'attributes' && m.oldValue\n"
+                    + "          && m.oldValue.indexOf('tr_checking2') >= 0) {\n"
+                    + "        settle(rowOf(m.target));\n"
+                    + "      } else if (m.type === 'childList') {\n"
+                    + "        m.addedNodes.forEach(function (n) {\n"
+                    + "          if (n.nodeType === 1) { settle(rowOf(n)); }\n"
+                    + "        });\n"
+                    + "      }\n"
+                    + "    });\n"
+                    + "  }).observe(document.body, {subtree: true, childList: true, attributes: true,\n"
+                    + "      attributeFilter: ['class'], attributeOldValue: true});\n"
+                    + "}\n"
+                    + "s.pending = {};\n"
+                    + "s.done = [];\n";
+
+    private static final String FETCH_SCRIPT =
+            "var s = window.surveyDriverVoteTimer;\n"
+                    + "return s ? {done: s.done, pending: Object.keys(s.pending).length} : null;";
+
+    private final WebDriver driver;
+
+    /** For each row id, the operations expected for that row, in the order they were started */
+    private final Map<String, List<String>> expected = new HashMap<>();
+
+    public SurveyDriverVoteTimer(WebDriver driver) {
+        this.driver = driver;
+    }
+
+    /**
+     * Install the timing listeners in the current page, and forget any previous operations. Call
+     * this after the page has loaded and before the first click.
+     *
+     * @return true for success, false for failure
+     */
+    public boolean install() {
+        expected.clear();
+        try {
+            ((JavascriptExecutor) driver).executeScript(INSTALL_SCRIPT);
+        } catch (Exception e) {
+            SurveyDriverLog.println("Unable to install vote timer; " + e);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Note that an operation is about to be started for the given row. The operations for each row
+     * must be noted in the same order in which they are started.
+     *
+     * @param rowId the id of the row, like "row_f3d4397b739b287"
+     * @param operation the name of the operation, like "abstain", "vote", or "add"
+     */
+    public void expect(String rowId, String operation) {
+        expected.computeIfAbsent(rowId, k -> new ArrayList<>()).add(operation);
+    }
+
+    /**
+     * Get the completed operations from the page and record their latencies. Call this after
+     * waiting for tr_checking2 to disappear.
+     *
+     * @param latency the histograms in which to record
+     * @param loc the locale
+     * @param page the page
+     */
+    public void record(SurveyDriverLatency latency, String loc, String page) {
+        Object result;
+        try {
+            result = ((JavascriptExecutor) driver).executeScript(FETCH_SCRIPT);
+        } catch (Exception e) {
+            SurveyDriverLog.println("Unable to get vote timings; " + e);
+            return;
+        }
+        if (!(result instanceof Map)) {
+            SurveyDriverLog.println("Vote timer was not installed for " + loc + "/" + page);
+            return;
+        }
+        Map<?, ?> map = (Map<?, ?>) result;
+        Map<String, Integer> used = new HashMap<>();
+        for (Object o : (List<?>) map.get("done")) {
+            Map<?, ?> done = (Map<?, ?>) o;
+            String rowId = (String) done.get("row");
+            List<String> ops = expected.get(rowId);
+            int n = used.merge(rowId, 1, Integer::sum) - 1;
+            String op = (ops != null && n < ops.size()) ? ops.get(n) : "unexpected";
+            double millis =
+                    ((Number) done.get("end")).doubleValue()
+                            - ((Number) done.get("start")).doubleValue();
+            latency.recordMicros(SurveyDriverLatency.key(op, loc, page), Math.round(millis * 1000));
+        }
+        Number pending = (Number) map.get("pending");
+        if (pending != null && pending.intValue() > 0) {
+            SurveyDriverLog.println(
+                    "Vote timer: "
+                            + pending
+                            + " row(s) never seen to finish for "
+                            + loc
+                            + "/"
+                            + page);
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package org.unicode.cldr.surveydriver;
 
 import org.openqa.selenium.By;
-import org.openqa.selenium.StaleElementReferenceException;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.interactions.Actions;
@@ -106,25 +105,24 @@ public class SurveyDriverXMLUploader {
                     "❌ XML-Upload test failed waiting for main menu to be clickable");
             return false;
         }
-        int repeats = 0;
-        for (; ; ) {
-            try {
-                clickEl.click();
-                return true;
-            } catch (StaleElementReferenceException e) {
-                if (++repeats > 4) {
-                    break;
-                }
-                SurveyDriverLog.println(
-                        "clickOnMainMenu repeating for StaleElementReferenceException in " + url);
-                clickEl = s.driver.findElement(By.className(className));
-            } catch (Exception e) {
-                SurveyDriverLog.println(e);
-                break;
-            }
+        final WebElement firstEl = clickEl;
+        Boolean clicked =
+                SurveyDriverRetry.at("clickOnMainMenu")
+                        .run(
+                                retry -> {
+                                    WebElement e =
+                                            (retry == 0)
+                                                    ? firstEl
+                                                    : s.driver.findElement(By.className(className));
+                                    e.click();
+                                    return Boolean.TRUE;
+                                },
+                                url);
+        if (clicked == null) {
+            SurveyDriverLog.println("❗ Test failed in clickOnMainMenu in " + url);
+            return false;
         }
-        SurveyDriverLog.println("❗ Test failed in clickOnMainMenu in " + url);
-        return false;
+        return true;
     }
 
     /**
@@ -151,26 +149,25 @@ public class SurveyDriverXMLUploader {
                     "❌ XML-Upload test failed waiting for " + linkText + " menu to be clickable");
             return false;
         }
-        int repeats = 0;
-        for (; ; ) {
-            try {
-                clickEl.click();
-                return true;
-            } catch (StaleElementReferenceException e) {
-                if (++repeats > 4) {
-                    break;
-                }
-                SurveyDriverLog.println(
-                        "clickOnGearElement repeating for StaleElementReferenceException in "
-                                + url);
-                clickEl = s.driver.findElement(By.partialLinkText(linkText));
-            } catch (Exception e) {
-                SurveyDriverLog.println(e);
-                break;
-            }
+        final WebElement firstEl = clickEl;
+        Boolean clicked =
+                SurveyDriverRetry.at("clickOnUploadXMLElement")
+                        .run(
+                                retry -> {
+                                    WebElement e =
+                                            (retry == 0)
+                                                    ? firstEl
+                                                    : s.driver.findElement(
+                                                            By.partialLinkText(linkText));
+                                    e.click();
+                                    return Boolean.TRUE;
+                                },
+                                url);
+        if (clicked == null) {
+            SurveyDriverLog.println("❗ Test failed in clickOnUploadXMLElement in " + url);
+            return false;
         }
-        SurveyDriverLog.println("❗ Test failed in clickOnUploadXMLElement in " + url);
-        return false;
+        return true;
     }
 
     /**
@@ -183,40 +180,40 @@ public class SurveyDriverXMLUploader {
         final String id = "file";
         final String xmlPathname =
                 "/Users/tbishop/Documents/WenlinDocs/Organizations/Unicode/CLDR_job/xml_upload_test.xml";
-        int repeats = 0;
-        for (; ; ) {
-            if (!s.waitUntilIdExists(id, true, url)) {
-                SurveyDriverLog.println("❌ XML-Upload test failed waiting for id to exist: " + id);
-                return false;
-            }
-            WebElement clickEl = s.driver.findElement(By.id(id));
-            if (clickEl == null) {
-                SurveyDriverLog.println("❌ XML-Upload test failed for getting id: " + id);
-                return false;
-            }
-            new Actions(s.driver).moveToElement(clickEl, 0, 0).build().perform();
-            if (!s.waitUntilElementClickable(clickEl, url)) {
-                SurveyDriverLog.println(
-                        "❌ XML-Upload test failed waiting for element to be clickable: " + id);
-                return false;
-            }
-            try {
-                Actions action = new Actions(s.driver);
-                action.moveToElement(clickEl).click().sendKeys(xmlPathname).perform();
-                return true;
-            } catch (StaleElementReferenceException e) {
-                if (++repeats > 4) {
-                    break;
-                }
-                SurveyDriverLog.println(
-                        "specifyXmlFileToUpload repeating for StaleElementReferenceException in "
-                                + url);
-            } catch (Exception e) {
-                SurveyDriverLog.println(e);
-                break;
-            }
+        Boolean specified =
+                SurveyDriverRetry.at("specifyXmlFileToUpload")
+                        .run(
+                                retry -> {
+                                    if (!s.waitUntilIdExists(id, true, url)) {
+                                        SurveyDriverLog.println(
+                                                "❌ XML-Upload test failed waiting for id to exist: "
+                                                        + id);
+                                        return Boolean.FALSE;
+                                    }
+                                    WebElement clickEl = s.driver.findElement(By.id(id));
+                                    new Actions(s.driver)
+                                            .moveToElement(clickEl, 0, 0)
+                                            .build()
+                                            .perform();
+                                    if (!s.waitUntilElementClickable(clickEl, url)) {
+                                        SurveyDriverLog.println(
+                                                "❌ XML-Upload test failed waiting for element to be"
+                                                        + " clickable: "
+                                                        + id);
+                                        return Boolean.FALSE;
+                                    }
+                                    Actions action = new Actions(s.driver);
+                                    action.moveToElement(clickEl)
+                                            .click()
+                                            .sendKeys(xmlPathname)
+                                            .perform();
+                                    return Boolean.TRUE;
+                                },
+                                url);
+        if (specified == null) {
+            SurveyDriverLog.println("❗ Test failed in specifyXmlFileToUpload in " + url);
+            return false;
         }
-        SurveyDriverLog.println("❗ Test failed in specifyXmlFileToUpload in " + url);
-        return false;
+        return specified;
     }
 }